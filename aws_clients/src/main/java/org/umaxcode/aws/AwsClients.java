@@ -0,0 +1,80 @@
+package org.umaxcode.aws;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.awscore.client.builder.AwsSyncClientBuilder;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
+
+import java.util.function.Consumer;
+
+/**
+ * One place to build SDK clients for the functions. Left to itself every client walks the region
+ * and credential provider chains, looks up its HTTP implementation on the classpath and opens a
+ * connection pool of its own, all during the cold start. Here the region and credentials come
+ * straight from what Lambda puts in the environment, and the HTTP client comes from the
+ * {@link TimeoutProfile}.
+ * <pre>
+ * S3Client s3Client = AwsClients.configure(S3Client.builder(), TimeoutProfile.BACKGROUND).build();
+ * </pre>
+ */
+public final class AwsClients {
+
+    private static final Region REGION = resolveRegion();
+    private static final AwsCredentialsProvider CREDENTIALS_PROVIDER = resolveCredentialsProvider();
+
+    private AwsClients() {
+    }
+
+    public static <B extends AwsClientBuilder<B, C> & AwsSyncClientBuilder<B, C>, C> B configure(
+            B builder, TimeoutProfile profile) {
+        return configure(builder, profile, overrides -> {
+        });
+    }
+
+    /**
+     * Same as {@link #configure(AwsClientBuilder, TimeoutProfile)}, with extra override settings
+     * such as interceptors. Setting the override configuration on the builder afterwards would
+     * replace the profile's timeouts.
+     */
+    public static <B extends AwsClientBuilder<B, C> & AwsSyncClientBuilder<B, C>, C> B configure(
+            B builder, TimeoutProfile profile, Consumer<ClientOverrideConfiguration.Builder> overrides) {
+        return builder
+                .region(REGION)
+                .credentialsProvider(CREDENTIALS_PROVIDER)
+                .httpClient(profile.httpClient())
+                .overrideConfiguration(c -> {
+                    profile.applyTo(c);
+                    overrides.accept(c);
+                });
+    }
+
+    public static Region region() {
+        return REGION;
+    }
+
+    public static AwsCredentialsProvider credentialsProvider() {
+        return CREDENTIALS_PROVIDER;
+    }
+
+    private static Region resolveRegion() {
+        String region = System.getenv("AWS_REGION");
+        return region != null ? Region.of(region) : new DefaultAwsRegionProviderChain().getRegion();
+    }
+
+    private static AwsCredentialsProvider resolveCredentialsProvider() {
+        // SnapStart functions get their credentials from the container endpoint rather than the environment
+        if (System.getenv("AWS_CONTAINER_CREDENTIALS_FULL_URI") != null) {
+            return ContainerCredentialsProvider.builder().build();
+        }
+        if (System.getenv("AWS_ACCESS_KEY_ID") != null) {
+            return EnvironmentVariableCredentialsProvider.create();
+        }
+        // local runs, with a profile or SSO session
+        return DefaultCredentialsProvider.create();
+    }
+}
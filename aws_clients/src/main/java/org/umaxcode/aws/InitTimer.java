@@ -0,0 +1,29 @@
+package org.umaxcode.aws;
+
+/**
+ * Logs how long a handler took to initialise, so the cold start cost of each function shows up
+ * in its own log group.
+ * <pre>
+ * InitTimer timer = InitTimer.start("ImageProcessorLambdaHandler");
+ * ...
+ * timer.done();
+ * </pre>
+ */
+public final class InitTimer {
+
+    private final String handler;
+    private final long start;
+
+    private InitTimer(String handler) {
+        this.handler = handler;
+        this.start = System.nanoTime();
+    }
+
+    public static InitTimer start(String handler) {
+        return new InitTimer(handler);
+    }
+
+    public void done() {
+        System.out.printf("%s initialized in %d ms%n", handler, (System.nanoTime() - start) / 1_000_000);
+    }
+}
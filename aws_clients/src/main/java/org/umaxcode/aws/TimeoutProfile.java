@@ -0,0 +1,75 @@
+package org.umaxcode.aws;
+
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+
+import java.time.Duration;
+
+/**
+ * Timeouts for a kind of caller. The SDK defaults wait far longer than any of the functions are
+ * allowed to run, so a stalled connection would otherwise use up the whole invocation.
+ * Each profile shares one HTTP client, and with it one connection pool, between all the
+ * service clients built with it.
+ */
+public enum TimeoutProfile {
+
+    /**
+     * Small requests made while a caller waits: API routes, Cognito triggers, websocket pushes.
+     */
+    INTERACTIVE(Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(15)),
+
+    /**
+     * Object transfers made while a caller waits. No per attempt limit, a large body legitimately
+     * takes a while, but the whole call still ends before API Gateway gives up at 29 seconds.
+     */
+    TRANSFER(Duration.ofSeconds(1), Duration.ofSeconds(10), null, Duration.ofSeconds(25)),
+
+    /**
+     * State machine steps, queue consumers and jobs, where nobody is waiting on the response.
+     */
+    BACKGROUND(Duration.ofSeconds(2), Duration.ofSeconds(30), null, Duration.ofMinutes(2));
+
+    private final Duration connectionTimeout;
+    private final Duration socketTimeout;
+    private final Duration apiCallAttemptTimeout;
+    private final Duration apiCallTimeout;
+    private volatile SdkHttpClient httpClient;
+
+    TimeoutProfile(Duration connectionTimeout, Duration socketTimeout,
+                   Duration apiCallAttemptTimeout, Duration apiCallTimeout) {
+        this.connectionTimeout = connectionTimeout;
+        this.socketTimeout = socketTimeout;
+        this.apiCallAttemptTimeout = apiCallAttemptTimeout;
+        this.apiCallTimeout = apiCallTimeout;
+    }
+
+    SdkHttpClient httpClient() {
+        SdkHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = httpClient;
+                if (client == null) {
+                    client = ApacheHttpClient.builder()
+                            .connectionTimeout(connectionTimeout)
+                            .connectionAcquisitionTimeout(connectionTimeout)
+                            .socketTimeout(socketTimeout)
+                            .tcpKeepAlive(true)
+                            // the reaper thread is frozen between invocations anyway, stale
+                            // connections are dropped when they are next taken from the pool
+                            .useIdleConnectionReaper(false)
+                            .build();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    void applyTo(ClientOverrideConfiguration.Builder builder) {
+        builder.apiCallTimeout(apiCallTimeout);
+        if (apiCallAttemptTimeout != null) {
+            builder.apiCallAttemptTimeout(apiCallAttemptTimeout);
+        }
+    }
+}
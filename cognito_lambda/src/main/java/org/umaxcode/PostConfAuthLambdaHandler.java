@@ -6,6 +6,9 @@ import com.amazonaws.services.lambda.runtime.events.CognitoUserPoolPostAuthentic
 import com.amazonaws.services.lambda.runtime.events.CognitoUserPoolPostConfirmationEvent;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.umaxcode.aws.AwsClients;
+import org.umaxcode.aws.InitTimer;
+import org.umaxcode.aws.TimeoutProfile;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
@@ -23,12 +26,15 @@ public class PostConfAuthLambdaHandler implements RequestHandler<Map<String, Obj
     private final String queueUrl;
 
     public PostConfAuthLambdaHandler() {
+        InitTimer initTimer = InitTimer.start("PostConfAuthLambdaHandler");
         this.objectMapper = new ObjectMapper();
         this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        this.sqsClient = SqsClient.create();
+        // Cognito gives the trigger five seconds, so fail fast rather than hang
+        this.sqsClient = AwsClients.configure(SqsClient.builder(), TimeoutProfile.INTERACTIVE).build();
         this.topicArn = System.getenv("SNS_NOTIFICATION_TOPIC_ARN");
         this.secondaryUserPoolId = System.getenv("SECONDARY_USER_POOL_ID");
         this.queueUrl = System.getenv("QUEUE_URL");
+        initTimer.done();
     }
 
     @Override
@@ -3,6 +3,9 @@ package org.umaxcode;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import org.umaxcode.aws.AwsClients;
+import org.umaxcode.aws.InitTimer;
+import org.umaxcode.aws.TimeoutProfile;
 import org.umaxcode.utils.PasswordGenerator;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
@@ -24,10 +27,12 @@ public class SQSPostConfAuthLambdaHandler implements RequestHandler<SQSEvent, Vo
     private final CognitoIdentityProviderClient cognitoIdentityProviderClient;
 
     public SQSPostConfAuthLambdaHandler() {
-        this.snsClient = SnsClient.create();
-        this.cognitoIdentityProviderClient = CognitoIdentityProviderClient.builder()
+        InitTimer initTimer = InitTimer.start("SQSPostConfAuthLambdaHandler");
+        this.snsClient = AwsClients.configure(SnsClient.builder(), TimeoutProfile.BACKGROUND).build();
+        this.cognitoIdentityProviderClient = AwsClients.configure(CognitoIdentityProviderClient.builder(), TimeoutProfile.BACKGROUND)
                 .region(Region.of(System.getenv("SECONDARY_REGION")))
                 .build();
+        initTimer.done();
     }
 
     @Override
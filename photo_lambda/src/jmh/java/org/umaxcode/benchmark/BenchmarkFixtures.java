@@ -0,0 +1,233 @@
+package org.umaxcode.benchmark;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.dto.response.PhotoPageDto;
+import org.umaxcode.domain.enums.OwnershipType;
+import org.umaxcode.domain.mapper.PhotoItemMapper;
+import org.umaxcode.repository.PhotoBlogRepository;
+import org.umaxcode.service.impl.PhotoBlogServiceImpl;
+import org.umaxcode.service.impl.PreSignedUrlCache;
+import org.umaxcode.service.impl.S3ServiceImpl;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The services wired by hand with in-memory fakes in place of DynamoDB, so the benchmarks measure
+ * our code and SigV4 signing, never the network. Fields Spring would inject with {@code @Value}
+ * are set by reflection to the defaults in application.properties.
+ */
+final class BenchmarkFixtures {
+
+    static final String PRIMARY_BUCKET = "primary-bucket";
+    private static final String OWNER = "benchmark@localhost";
+
+    private BenchmarkFixtures() {
+    }
+
+    static S3Presigner presigner() {
+        return S3Presigner.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create("AKIDBENCHMARK", "benchmark-secret-key")))
+                .build();
+    }
+
+    static PhotoItemMapper photoItemMapper() {
+        PhotoItemMapper mapper = new PhotoItemMapper();
+        set(mapper, "legacyPicUrlReads", true);
+        set(mapper, "feedDerivative", "thumbnail");
+        return mapper;
+    }
+
+    /**
+     * A zero {@code maxAge} makes the cache hand out nothing, so every read is signed.
+     */
+    static PreSignedUrlCache preSignedUrlCache(Duration maxAge) {
+        return new PreSignedUrlCache(20_000, maxAge);
+    }
+
+    static PhotoBlogServiceImpl photoBlogService(List<GetPhotoDto> feed, S3Presigner presigner, Duration cacheMaxAge) {
+
+        S3ServiceImpl s3Service = new S3ServiceImpl(null, presigner, preSignedUrlCache(cacheMaxAge), null, null);
+        set(s3Service, "primaryBucketName", PRIMARY_BUCKET);
+
+        PhotoItemMapper photoItemMapper = photoItemMapper();
+        PhotoBlogServiceImpl service = new PhotoBlogServiceImpl(new InMemoryPhotoRepository(feed, photoItemMapper),
+                s3Service, photoItemMapper, null);
+        set(service, "defaultPageSize", 20);
+        set(service, "maxPageSize", Math.max(feed.size(), 100));
+        return service;
+    }
+
+    static Jwt jwt() {
+        return Jwt.withTokenValue("benchmark")
+                .header("alg", "none")
+                .claim("email", OWNER)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+    }
+
+    static List<GetPhotoDto> feed(int size) {
+        List<GetPhotoDto> photos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            photos.add(GetPhotoDto.builder()
+                    .imgId("pic-" + i)
+                    .objectKey("photos/" + i + ".jpg")
+                    .uploadDateTime("2025-01-01T10:00:00")
+                    .build());
+        }
+        return photos;
+    }
+
+    static Map<String, AttributeValue> item(int i) {
+        return Map.of(
+                "picId", AttributeValue.fromS("pic-" + i),
+                "objectKey", AttributeValue.fromS("photos/" + i + ".jpg"),
+                "dateOfUpload", AttributeValue.fromS("2025-01-01T10:00:00"),
+                "owner", AttributeValue.fromS(OWNER),
+                "isPlacedInRecycleBin", AttributeValue.fromN("0"));
+    }
+
+    // an item written before objectKey existed, the key has to be parsed out of the stored url
+    static Map<String, AttributeValue> legacyItem(int i, String preSignedUrl) {
+        return Map.of(
+                "picId", AttributeValue.fromS("pic-" + i),
+                "picUrl", AttributeValue.fromS(preSignedUrl),
+                "dateOfUpload", AttributeValue.fromS("2025-01-01T10:00:00"),
+                "owner", AttributeValue.fromS(OWNER),
+                "isPlacedInRecycleBin", AttributeValue.fromN("0"));
+    }
+
+    private static void set(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Photos held in memory. Feed pages are always the feed it was created with, so every page read
+     * costs the same; the single-photo operations work on items built from that feed.
+     */
+    private static final class InMemoryPhotoRepository implements PhotoBlogRepository {
+
+        private final List<GetPhotoDto> feed;
+        private final PhotoItemMapper photoItemMapper;
+        private final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+
+        private InMemoryPhotoRepository(List<GetPhotoDto> feed, PhotoItemMapper photoItemMapper) {
+            this.feed = feed;
+            this.photoItemMapper = photoItemMapper;
+            for (GetPhotoDto photo : feed) {
+                items.put(photo.getImgId(), Map.of(
+                        "picId", AttributeValue.fromS(photo.getImgId()),
+                        "objectKey", AttributeValue.fromS(photo.getObjectKey()),
+                        "dateOfUpload", AttributeValue.fromS(photo.getUploadDateTime()),
+                        "owner", AttributeValue.fromS(OWNER),
+                        "isPlacedInRecycleBin", AttributeValue.fromN("0")));
+            }
+        }
+
+        @Override
+        public PhotoPageDto getItemsDetails(String email, OwnershipType ownershipType, int limit, String cursor) {
+            return PhotoPageDto.builder().photos(feed).build();
+        }
+
+        @Override
+        public String streamItemsDetails(String email, OwnershipType ownershipType, int limit, String cursor,
+                                         Consumer<GetPhotoDto> sink) {
+            feed.forEach(sink);
+            return null;
+        }
+
+        @Override
+        public Map<String, AttributeValue> getItem(String id) {
+            return items.getOrDefault(id, Map.of());
+        }
+
+        @Override
+        public Map<String, AttributeValue> deleteItem(String id) {
+            Map<String, AttributeValue> removed = items.remove(id);
+            return removed != null ? removed : Map.of();
+        }
+
+        @Override
+        public CompletableFuture<Map<String, AttributeValue>> deleteItemAsync(String id) {
+            return CompletableFuture.completedFuture(deleteItem(id));
+        }
+
+        @Override
+        public Map<String, AttributeValue> addItemToRecycleBin(String id) {
+            return update(id, "isPlacedInRecycleBin", AttributeValue.fromN("1"));
+        }
+
+        @Override
+        public CompletableFuture<Map<String, AttributeValue>> addItemToRecycleBinAsync(String id) {
+            return CompletableFuture.completedFuture(addItemToRecycleBin(id));
+        }
+
+        @Override
+        public void updateObjectKey(String id, String objectKey, Map<String, String> derivativeKeys) {
+            update(id, "objectKey", AttributeValue.fromS(objectKey));
+            if (!derivativeKeys.isEmpty()) {
+                Map<String, AttributeValue> derivatives = new HashMap<>();
+                derivativeKeys.forEach((name, key) -> derivatives.put(name, AttributeValue.fromS(key)));
+                update(id, "derivatives", AttributeValue.fromM(derivatives));
+            }
+        }
+
+        @Override
+        public CompletableFuture<Void> updateObjectKeyAsync(String id, String objectKey, Map<String, String> derivativeKeys) {
+            updateObjectKey(id, objectKey, derivativeKeys);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public Map<String, AttributeValue> restoreFromRecycleBin(String id) {
+            return update(id, "isPlacedInRecycleBin", AttributeValue.fromN("0"));
+        }
+
+        @Override
+        public CompletableFuture<Map<String, AttributeValue>> restoreFromRecycleBinAsync(String id) {
+            return CompletableFuture.completedFuture(restoreFromRecycleBin(id));
+        }
+
+        @Override
+        public List<GetPhotoDto> getAllItemsInRecycleBin(String email) {
+            return items.values().stream()
+                    .filter(item -> item.get("owner").s().equals(email))
+                    .filter(item -> item.get("isPlacedInRecycleBin").n().equals("1"))
+                    .map(photoItemMapper::toPhotoDto)
+                    .toList();
+        }
+
+        // the item after the update, like the ALL_NEW updates of the real repository
+        private Map<String, AttributeValue> update(String id, String attribute, AttributeValue value) {
+            Map<String, AttributeValue> updated = items.computeIfPresent(id, (key, item) -> {
+                Map<String, AttributeValue> copy = new HashMap<>(item);
+                copy.put(attribute, value);
+                return Map.copyOf(copy);
+            });
+            return updated != null ? updated : Map.of();
+        }
+    }
+}
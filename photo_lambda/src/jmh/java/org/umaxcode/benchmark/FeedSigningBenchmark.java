@@ -0,0 +1,63 @@
+package org.umaxcode.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.umaxcode.domain.dto.response.PhotoPageDto;
+import org.umaxcode.service.impl.PhotoBlogServiceImpl;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A feed page going through {@code PhotoBlogServiceImpl.getImages}: every photo gets a pre-signed
+ * url on the way out. {@code cached=false} signs every photo, {@code cached=true} measures the
+ * steady state of a warm container where the signer cache answers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FeedSigningBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int feedSize;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private S3Presigner presigner;
+    private PhotoBlogServiceImpl photoBlogService;
+    private Jwt jwt;
+
+    @Setup
+    public void setUp() {
+        presigner = BenchmarkFixtures.presigner();
+        photoBlogService = BenchmarkFixtures.photoBlogService(BenchmarkFixtures.feed(feedSize), presigner,
+                cached ? Duration.ofMinutes(15) : Duration.ZERO);
+        jwt = BenchmarkFixtures.jwt();
+    }
+
+    @TearDown
+    public void tearDown() {
+        presigner.close();
+    }
+
+    @Benchmark
+    public PhotoPageDto signFeed() {
+        return photoBlogService.getImages("others-photo", feedSize, null, jwt);
+    }
+}
@@ -0,0 +1,71 @@
+package org.umaxcode.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.mapper.PhotoItemMapper;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DynamoDB item to {@code GetPhotoDto}, the mapping the repository runs for every item it reads,
+ * for current items and for legacy ones whose object key is parsed out of a stored url.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PhotoItemMapperBenchmark {
+
+    private PhotoItemMapper photoItemMapper;
+    private Map<String, AttributeValue> item;
+    private Map<String, AttributeValue> legacyItem;
+    private String preSignedUrl;
+
+    @Setup
+    public void setUp() {
+        photoItemMapper = BenchmarkFixtures.photoItemMapper();
+        try (S3Presigner presigner = BenchmarkFixtures.presigner()) {
+            preSignedUrl = presigner.presignGetObject(r -> r
+                            .signatureDuration(Duration.ofHours(24))
+                            .getObjectRequest(GetObjectRequest.builder()
+                                    .bucket(BenchmarkFixtures.PRIMARY_BUCKET)
+                                    .key("photos/42.jpg")
+                                    .build()))
+                    .url()
+                    .toString();
+        }
+        item = BenchmarkFixtures.item(42);
+        legacyItem = BenchmarkFixtures.legacyItem(42, preSignedUrl);
+    }
+
+    @Benchmark
+    public GetPhotoDto toPhotoDto() {
+        return photoItemMapper.toPhotoDto(item);
+    }
+
+    @Benchmark
+    public GetPhotoDto toPhotoDtoLegacy() {
+        return photoItemMapper.toPhotoDto(legacyItem);
+    }
+
+    @Benchmark
+    public String extractObjectKey() {
+        return PhotoItemMapper.fromPreSignedUrl(preSignedUrl);
+    }
+}
@@ -0,0 +1,58 @@
+package org.umaxcode.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw SigV4 signing cost of {@code S3Presigner.presignGetObject}, the work the pre-signed url cache
+ * saves on every hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PresignerBenchmark {
+
+    private S3Presigner presigner;
+    private GetObjectPresignRequest presignRequest;
+
+    @Setup
+    public void setUp() {
+        presigner = BenchmarkFixtures.presigner();
+        presignRequest = GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofHours(24))
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket(BenchmarkFixtures.PRIMARY_BUCKET)
+                        .key("photos/42.jpg")
+                        .build())
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        presigner.close();
+    }
+
+    @Benchmark
+    public PresignedGetObjectRequest presignGetObject() {
+        return presigner.presignGetObject(presignRequest);
+    }
+}
@@ -0,0 +1,64 @@
+package org.umaxcode.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.dto.response.SuccessResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a feed response with Jackson, configured the way Spring Boot configures the mapper the
+ * controllers use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResponseSerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private SuccessResponse response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<GetPhotoDto> photos = BenchmarkFixtures.feed(pageSize).stream()
+                .map(photo -> GetPhotoDto.builder()
+                        .imgId(photo.getImgId())
+                        .image("https://" + BenchmarkFixtures.PRIMARY_BUCKET + ".s3.amazonaws.com/"
+                                + photo.getObjectKey() + "?X-Amz-Algorithm=AWS4-HMAC-SHA256&X-Amz-Signature=0123456789abcdef")
+                        .uploadDateTime(photo.getUploadDateTime())
+                        .build())
+                .toList();
+        response = SuccessResponse.builder()
+                .message("Images retrieved successfully")
+                .data(photos)
+                .nextCursor("eyJwaWNJZCI6eyJzIjoicGljLTE5In19")
+                .build();
+    }
+
+    @Benchmark
+    public byte[] writeFeedResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
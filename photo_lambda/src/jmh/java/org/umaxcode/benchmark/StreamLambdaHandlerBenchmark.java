@@ -0,0 +1,76 @@
+package org.umaxcode.benchmark;
+
+import com.amazonaws.serverless.proxy.internal.LambdaContainerHandler;
+import com.amazonaws.serverless.proxy.internal.testutils.AwsProxyRequestBuilder;
+import com.amazonaws.serverless.proxy.internal.testutils.MockLambdaContext;
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import com.amazonaws.services.lambda.runtime.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.umaxcode.StreamLambdaHandler;
+import org.umaxcode.TestSecurityConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@code GET /photos/{id}/generate-pre-signed-url} invocation through {@code StreamLambdaHandler},
+ * from the API Gateway event to the serialized response, with the fast path on and off. Runs with
+ * the test profile, the token is verified against the key pair of {@code TestSecurityConfig} and
+ * the url comes from its service stand-in, so only the request handling itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Dspring.profiles.active=test")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StreamLambdaHandlerBenchmark {
+
+    private static final String PATH = "/photos/3f1c/generate-pre-signed-url";
+
+    @Param({"false", "true"})
+    public boolean fastPath;
+
+    private StreamLambdaHandler handler;
+    private Context context;
+    private byte[] event;
+    private final ByteArrayOutputStream response = new ByteArrayOutputStream(4096);
+
+    @Setup
+    public void setUp() throws IOException {
+        // read while the Spring context starts, which the first use of the handler class triggers
+        System.setProperty("application.fastPath.enabled", String.valueOf(fastPath));
+        handler = new StreamLambdaHandler();
+        context = new MockLambdaContext();
+        event = LambdaContainerHandler.getObjectMapper().writeValueAsBytes(new AwsProxyRequestBuilder(PATH, "GET")
+                .header("Accept", "application/json")
+                .header("Authorization", "Bearer " + TestSecurityConfig.token("jane@example.com"))
+                .build());
+
+        handleRequest();
+        int statusCode = LambdaContainerHandler.getObjectMapper()
+                .readValue(response.toByteArray(), AwsProxyResponse.class).getStatusCode();
+        if (statusCode != 200) {
+            throw new IllegalStateException(PATH + " answered " + statusCode);
+        }
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream handleRequest() throws IOException {
+        response.reset();
+        handler.handleRequest(new ByteArrayInputStream(event), response, context);
+        return response;
+    }
+}
@@ -0,0 +1,130 @@
+package org.umaxcode.loadtest;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stands in for S3 with the calls photo_lambda makes. Request bodies are read to the end, as
+ * the real client would send them, but only object sizes are kept so the stand-in does not
+ * show up in the heap figures.
+ */
+final class InMemoryS3Client implements S3Client {
+
+    private final Map<String, Long> objects = new ConcurrentHashMap<>();
+    private final Map<String, Long> multipartUploads = new ConcurrentHashMap<>();
+
+    void seed(String bucket, String key, long size) {
+        objects.put(path(bucket, key), size);
+    }
+
+    void clear() {
+        objects.clear();
+        multipartUploads.clear();
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+        objects.put(path(request.bucket(), request.key()), drain(requestBody));
+        return PutObjectResponse.builder().eTag(UUID.randomUUID().toString()).build();
+    }
+
+    @Override
+    public CopyObjectResponse copyObject(CopyObjectRequest request) {
+        Long size = objects.get(path(request.sourceBucket(), request.sourceKey()));
+        if (size == null) {
+            throw NoSuchKeyException.builder().message("No such key: " + request.sourceKey()).build();
+        }
+        objects.put(path(request.destinationBucket(), request.destinationKey()), size);
+        return CopyObjectResponse.builder().build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        objects.remove(path(request.bucket(), request.key()));
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        multipartUploads.put(uploadId, 0L);
+        return CreateMultipartUploadResponse.builder()
+                .bucket(request.bucket())
+                .key(request.key())
+                .uploadId(uploadId)
+                .build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody) {
+        long size = drain(requestBody);
+        if (multipartUploads.computeIfPresent(request.uploadId(), (id, total) -> total + size) == null) {
+            throw NoSuchUploadException.builder().message("No such upload: " + request.uploadId()).build();
+        }
+        return UploadPartResponse.builder().eTag("\"" + request.partNumber() + "\"").build();
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        Long size = multipartUploads.remove(request.uploadId());
+        if (size == null) {
+            throw NoSuchUploadException.builder().message("No such upload: " + request.uploadId()).build();
+        }
+        objects.put(path(request.bucket(), request.key()), size);
+        return CompleteMultipartUploadResponse.builder()
+                .bucket(request.bucket())
+                .key(request.key())
+                .build();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        multipartUploads.remove(request.uploadId());
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static String path(String bucket, String key) {
+        return bucket + "/" + key;
+    }
+
+    private static long drain(RequestBody requestBody) {
+        try (InputStream in = requestBody.contentStreamProvider().newStream()) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
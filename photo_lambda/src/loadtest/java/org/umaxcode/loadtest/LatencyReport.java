@@ -0,0 +1,64 @@
+package org.umaxcode.loadtest;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per endpoint latencies, error counts and allocation for one run. Allocation is what the
+ * request thread allocated while the handler ran, work handed to other threads (the parallel
+ * feed scan, async clients) is not included.
+ */
+final class LatencyReport {
+
+    private final Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+
+    void record(Operation operation, long latencyNanos, long allocatedBytes, int statusCode) {
+        samples.computeIfAbsent(operation, o -> new Samples()).add(latencyNanos, allocatedBytes, statusCode >= 400);
+    }
+
+    void print(PrintStream out, int tableSize, long elapsedNanos, long heapUsedBytes) {
+
+        int total = samples.values().stream().mapToInt(s -> s.count).sum();
+        out.printf("%nTable size %d: %d requests in %.1f s, %.0f req/s, heap used after GC %d MB%n",
+                tableSize, total, elapsedNanos / 1e9, total / (elapsedNanos / 1e9), heapUsedBytes / (1024 * 1024));
+        out.printf("%-12s %7s %7s %9s %9s %9s %9s %12s%n",
+                "endpoint", "count", "errors", "p50 ms", "p95 ms", "p99 ms", "req/s", "alloc KB/req");
+
+        samples.forEach((operation, s) -> {
+            long[] sorted = Arrays.copyOf(s.latencies, s.count);
+            Arrays.sort(sorted);
+            // sequential requests, so an endpoint's rate is how many fit in the time spent on it
+            double busySeconds = Arrays.stream(sorted).sum() / 1e9;
+            out.printf("%-12s %7d %7d %9.2f %9.2f %9.2f %9.0f %12.1f%n",
+                    operation.label(), s.count, s.errors,
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    s.count / busySeconds, s.allocatedBytes / 1024.0 / s.count);
+        });
+    }
+
+    // nearest rank, in milliseconds
+    private static double percentile(long[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)] / 1e6;
+    }
+
+    private static final class Samples {
+        private long[] latencies = new long[256];
+        private int count;
+        private int errors;
+        private long allocatedBytes;
+
+        void add(long latencyNanos, long allocated, boolean failed) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            allocatedBytes += allocated;
+            if (failed) {
+                errors++;
+            }
+        }
+    }
+}
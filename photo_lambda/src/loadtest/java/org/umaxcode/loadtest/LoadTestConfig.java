@@ -0,0 +1,36 @@
+package org.umaxcode.loadtest;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Puts the {@link LoadTestEnvironment} stand-ins in front of the real clients and the Cognito
+ * decoder. Only on the classpath with -Ploadtest and only active under the loadtest profile.
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfig {
+
+    @Bean
+    @Primary
+    public DynamoDbClient loadTestDynamoDbClient() {
+        return LoadTestEnvironment.current().dynamoDbClient();
+    }
+
+    @Bean
+    @Primary
+    public S3Client loadTestS3Client() {
+        return LoadTestEnvironment.current().s3Client();
+    }
+
+    @Bean
+    @Primary
+    public JwtDecoder loadTestJwtDecoder() {
+        return LoadTestEnvironment.current().jwtDecoder();
+    }
+}
@@ -0,0 +1,208 @@
+package org.umaxcode.loadtest;
+
+import com.amazonaws.services.dynamodbv2.local.embedded.DynamoDBEmbedded;
+import com.amazonaws.services.dynamodbv2.local.shared.access.AmazonDynamoDBLocal;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.umaxcode.config.CachingJwtDecoder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * What the application talks to during a load test: DynamoDB Local running in-process, an
+ * in-memory S3 and a local RSA key standing in for the Cognito user pool. Spring picks them up
+ * through {@link LoadTestConfig}, so the environment has to be started before the handler class
+ * is loaded.
+ */
+final class LoadTestEnvironment {
+
+    static final String TABLE_NAME = "photoDB-loadtest";
+    static final String PRIMARY_BUCKET = "loadtest-primary";
+    static final String STAGE_BUCKET = "loadtest-staging";
+    static final long SEEDED_OBJECT_SIZE = 250_000;
+    private static final int BATCH_WRITE_SIZE = 25;
+
+    private static volatile LoadTestEnvironment current;
+
+    private final AmazonDynamoDBLocal dynamoDbLocal;
+    private final DynamoDbClient dynamoDbClient;
+    private final InMemoryS3Client s3Client = new InMemoryS3Client();
+    private final RSAKey signingKey;
+    private final Map<String, String> tokens = new HashMap<>();
+
+    private LoadTestEnvironment() throws JOSEException {
+        this.dynamoDbLocal = DynamoDBEmbedded.create();
+        this.dynamoDbClient = dynamoDbLocal.dynamoDbClient();
+        this.signingKey = new RSAKeyGenerator(2048).keyID("loadtest").generate();
+    }
+
+    static LoadTestEnvironment start() throws JOSEException {
+        current = new LoadTestEnvironment();
+        return current;
+    }
+
+    static LoadTestEnvironment current() {
+        if (current == null) {
+            throw new IllegalStateException("LoadTestEnvironment.start() has to run before the application starts");
+        }
+        return current;
+    }
+
+    DynamoDbClient dynamoDbClient() {
+        return dynamoDbClient;
+    }
+
+    InMemoryS3Client s3Client() {
+        return s3Client;
+    }
+
+    /**
+     * Verifies tokens from {@link #token(String)}, wrapped like the production decoder.
+     */
+    JwtDecoder jwtDecoder() {
+        try {
+            NimbusJwtDecoder decoder = NimbusJwtDecoder.withPublicKey(signingKey.toRSAPublicKey()).build();
+            return new CachingJwtDecoder(decoder, 1000);
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * An RS256 token with the claims Cognito puts in an id token, one per user for the whole run.
+     */
+    String token(String email) {
+        return tokens.computeIfAbsent(email, this::signToken);
+    }
+
+    private String signToken(String email) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(UUID.nameUUIDFromBytes(email.getBytes()).toString())
+                .issuer("https://cognito-idp.us-east-1.amazonaws.com/loadtest")
+                .claim("email", email)
+                .claim("given_name", "Load")
+                .claim("family_name", "Test")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(6 * 3600)))
+                .build();
+        try {
+            SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+            jwt.sign(new RSASSASigner(signingKey));
+            return jwt.serialize();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Recreates the photo table with {@code tableSize} items spread over the users, the same
+     * attributes and indexes the stack creates, and puts a matching object in the primary bucket
+     * for each.
+     */
+    PhotoPool reset(int tableSize, List<String> users, double recycledRatio, Random random) {
+
+        try {
+            dynamoDbClient.deleteTable(r -> r.tableName(TABLE_NAME));
+        } catch (ResourceNotFoundException ex) {
+            // first run
+        }
+        s3Client.clear();
+
+        dynamoDbClient.createTable(r -> r
+                .tableName(TABLE_NAME)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        attribute("picId"),
+                        attribute("owner"),
+                        attribute("recycledOwner"))
+                .keySchema(hashKey("picId"))
+                .globalSecondaryIndexes(index("ownerIndex", "owner"), index("recycleBinIndex", "recycledOwner")));
+
+        PhotoPool pool = new PhotoPool(users, random);
+        List<WriteRequest> batch = new ArrayList<>(BATCH_WRITE_SIZE);
+        for (int i = 0; i < tableSize; i++) {
+            String owner = users.get(i % users.size());
+            String picId = UUID.randomUUID().toString();
+            boolean recycled = random.nextDouble() < recycledRatio;
+            String objectKey = recycled ? "recycled/" + owner + "/" + picId + ".jpg" : picId + ".jpg";
+
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("picId", AttributeValue.fromS(picId));
+            item.put("objectKey", AttributeValue.fromS(objectKey));
+            item.put("owner", AttributeValue.fromS(owner));
+            item.put("dateOfUpload", AttributeValue.fromS(LocalDateTime.now().minusMinutes(i).toString()));
+            item.put("isPlacedInRecycleBin", AttributeValue.fromN(recycled ? "1" : "0"));
+            if (recycled) {
+                item.put("recycledOwner", AttributeValue.fromS(owner));
+                pool.addRecycled(owner, picId);
+            } else {
+                pool.addActive(owner, picId);
+            }
+            s3Client.seed(PRIMARY_BUCKET, objectKey, SEEDED_OBJECT_SIZE);
+
+            batch.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+            if (batch.size() == BATCH_WRITE_SIZE || i == tableSize - 1) {
+                write(batch);
+                batch = new ArrayList<>(BATCH_WRITE_SIZE);
+            }
+        }
+        return pool;
+    }
+
+    void shutdown() {
+        dynamoDbLocal.shutdown();
+    }
+
+    private void write(List<WriteRequest> batch) {
+        Map<String, List<WriteRequest>> unprocessed = Map.of(TABLE_NAME, batch);
+        while (!unprocessed.isEmpty()) {
+            Map<String, List<WriteRequest>> requestItems = unprocessed;
+            unprocessed = dynamoDbClient.batchWriteItem(r -> r.requestItems(requestItems)).unprocessedItems();
+        }
+    }
+
+    private static AttributeDefinition attribute(String name) {
+        return AttributeDefinition.builder().attributeName(name).attributeType(ScalarAttributeType.S).build();
+    }
+
+    private static KeySchemaElement hashKey(String name) {
+        return KeySchemaElement.builder().attributeName(name).keyType(KeyType.HASH).build();
+    }
+
+    private static GlobalSecondaryIndex index(String indexName, String hashKey) {
+        return GlobalSecondaryIndex.builder()
+                .indexName(indexName)
+                .keySchema(hashKey(hashKey))
+                .projection(p -> p.projectionType(ProjectionType.ALL))
+                .build();
+    }
+}
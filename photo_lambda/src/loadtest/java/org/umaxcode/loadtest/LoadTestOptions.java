@@ -0,0 +1,89 @@
+package org.umaxcode.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options, given as {@code --name=value}.
+ */
+record LoadTestOptions(
+        List<Integer> tableSizes,
+        int requests,
+        int warmup,
+        int users,
+        double recycledRatio,
+        Map<Operation, Integer> mix,
+        int uploadSize,
+        int pageSize,
+        long seed,
+        boolean fastPath,
+        boolean metrics,
+        boolean prime
+) {
+
+    static final String USAGE = """
+            Options, all optional:
+              --table-sizes=1000,10000   items seeded into the table, one run per size
+              --requests=2000            measured requests per run
+              --warmup=300               requests sent before measuring
+              --users=100                owners the items are spread over
+              --recycled-ratio=0.1       share of seeded items already in the recycle bin
+              --mix=feed=35,others-feed=20,share=15,upload=5,recycle=10,restore=8,delete=7
+              --upload-size=65536        bytes per uploaded photo
+              --page-size=20             limit sent with feed requests
+              --seed=42                  seed for the request sequence and the seeded data
+              --fast-path=false          serve shares through FastPathRouter
+              --metrics=false            keep the EMF metrics recorder on
+              --prime=false              run the SnapStart priming and restore hooks before the first request
+            """;
+
+    private static final Set<String> NAMES = Set.of("table-sizes", "requests", "warmup", "users", "recycled-ratio",
+            "mix", "upload-size", "page-size", "seed", "fast-path", "metrics", "prime");
+
+    static LoadTestOptions parse(String[] args) {
+
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            String name = arg.startsWith("--") && split > 2 ? arg.substring(2, split) : null;
+            if (name == null || !NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option: " + arg + System.lineSeparator() + USAGE);
+            }
+            values.put(name, arg.substring(split + 1));
+        }
+
+        return new LoadTestOptions(
+                Arrays.stream(values.getOrDefault("table-sizes", "1000,10000").split(","))
+                        .map(String::trim)
+                        .map(Integer::parseInt)
+                        .toList(),
+                Integer.parseInt(values.getOrDefault("requests", "2000")),
+                Integer.parseInt(values.getOrDefault("warmup", "300")),
+                Integer.parseInt(values.getOrDefault("users", "100")),
+                Double.parseDouble(values.getOrDefault("recycled-ratio", "0.1")),
+                parseMix(values.getOrDefault("mix", "feed=35,others-feed=20,share=15,upload=5,recycle=10,restore=8,delete=7")),
+                Integer.parseInt(values.getOrDefault("upload-size", "65536")),
+                Integer.parseInt(values.getOrDefault("page-size", "20")),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                Boolean.parseBoolean(values.getOrDefault("fast-path", "false")),
+                Boolean.parseBoolean(values.getOrDefault("metrics", "false")),
+                Boolean.parseBoolean(values.getOrDefault("prime", "false"))
+        );
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in --mix, got: " + entry);
+            }
+            weights.put(Operation.fromLabel(parts[0]), Integer.parseInt(parts[1]));
+        }
+        return weights;
+    }
+}
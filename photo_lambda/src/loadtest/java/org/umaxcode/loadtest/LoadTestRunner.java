@@ -0,0 +1,148 @@
+package org.umaxcode.loadtest;
+
+import com.amazonaws.serverless.proxy.internal.LambdaContainerHandler;
+import com.amazonaws.serverless.proxy.internal.testutils.MockLambdaContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.umaxcode.StreamLambdaHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Replays a mix of API requests through {@link StreamLambdaHandler#handleRequest} in-process,
+ * against DynamoDB Local and an in-memory S3, and reports latency percentiles, throughput and
+ * allocation per endpoint for each table size. Requests run one at a time, as they do in a
+ * Lambda container.
+ * <pre>
+ * mvn -Ploadtest verify -Dloadtest.args="--table-sizes=1000,50000 --requests=5000"
+ * </pre>
+ */
+public final class LoadTestRunner {
+
+    private final LoadTestOptions options;
+    private final LoadTestEnvironment environment;
+    private final StreamLambdaHandler handler;
+    private final ObjectMapper objectMapper = LambdaContainerHandler.getObjectMapper();
+    private final MockLambdaContext lambdaContext = new MockLambdaContext();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private LoadTestRunner(LoadTestOptions options, LoadTestEnvironment environment, StreamLambdaHandler handler) {
+        this.options = options;
+        this.environment = environment;
+        this.handler = handler;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        configure(options);
+
+        LoadTestEnvironment environment = LoadTestEnvironment.start();
+        try {
+            // loading the handler class starts Spring, which needs the environment from here on
+            new LoadTestRunner(options, environment, new StreamLambdaHandler()).run();
+        } finally {
+            environment.shutdown();
+        }
+        System.exit(0);
+    }
+
+    private static void configure(LoadTestOptions options) {
+        System.setProperty("spring.profiles.active", "loadtest");
+        System.setProperty("application.aws.tableName", LoadTestEnvironment.TABLE_NAME);
+        System.setProperty("application.aws.primaryBucketName", LoadTestEnvironment.PRIMARY_BUCKET);
+        System.setProperty("application.aws.stageBucketName", LoadTestEnvironment.STAGE_BUCKET);
+        System.setProperty("application.security.prefetchJwks", "false");
+        System.setProperty("application.fastPath.enabled", String.valueOf(options.fastPath()));
+        System.setProperty("application.metrics.enabled", String.valueOf(options.metrics()));
+        // pre-signing still needs a region and credentials, nothing signed with them leaves the process
+        System.setProperty("aws.region", "us-east-1");
+        System.setProperty("aws.accessKeyId", "loadtest");
+        System.setProperty("aws.secretAccessKey", "loadtest");
+    }
+
+    private void run() throws Exception {
+
+        List<String> users = IntStream.range(0, options.users())
+                .mapToObj(i -> "loadtest-user-" + i + "@example.com")
+                .toList();
+        PrintStream out = System.out;
+        out.printf("Mix %s, %d warmup and %d measured requests per run%n",
+                options.mix(), options.warmup(), options.requests());
+
+        boolean firstRun = true;
+        for (int tableSize : options.tableSizes()) {
+            Random random = new Random(options.seed());
+            long seedStart = System.nanoTime();
+            PhotoPool pool = environment.reset(tableSize, users, options.recycledRatio(), random);
+            out.printf("Seeded %d items in %d ms%n", tableSize, (System.nanoTime() - seedStart) / 1_000_000);
+
+            RequestPlanner planner = new RequestPlanner(options, pool, environment, random);
+            LatencyReport report = new LatencyReport();
+            long elapsed;
+
+            if (firstRun && options.prime()) {
+                // the hooks SnapStart runs around the snapshot, they print their own timings
+                handler.beforeCheckpoint(null);
+                handler.afterRestore(null);
+            }
+
+            // the application logs on every request, keep it out of the report
+            long firstLatency = 0;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                for (int i = 0; i < options.warmup(); i++) {
+                    long latency = send(planner, null);
+                    firstLatency = i == 0 ? latency : firstLatency;
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < options.requests(); i++) {
+                    send(planner, report);
+                }
+                elapsed = System.nanoTime() - start;
+            } finally {
+                System.setOut(out);
+            }
+
+            if (firstRun && options.warmup() > 0) {
+                out.printf("First request after startup took %.1f ms (%s)%n",
+                        firstLatency / 1_000_000.0, options.prime() ? "primed" : "not primed");
+            }
+            report.print(out, tableSize, elapsed, heapUsedAfterGc());
+            firstRun = false;
+        }
+    }
+
+    // the latency of the request in nanoseconds
+    private long send(RequestPlanner planner, LatencyReport report) throws Exception {
+
+        RequestPlanner.PlannedRequest planned = planner.next();
+        byte[] event = objectMapper.writeValueAsBytes(planned.request());
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        handler.handleRequest(new ByteArrayInputStream(event), response, lambdaContext);
+        long latency = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        int statusCode = objectMapper.readTree(response.toByteArray()).path("statusCode").asInt();
+        planner.settle(planned, statusCode < 400);
+        if (report != null) {
+            report.record(planned.operation(), latency, allocated, statusCode);
+        }
+        return latency;
+    }
+
+    private static long heapUsedAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
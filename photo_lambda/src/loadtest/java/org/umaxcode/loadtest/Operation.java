@@ -0,0 +1,34 @@
+package org.umaxcode.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * The endpoints a load test run mixes, named as they are given in {@code --mix}.
+ */
+enum Operation {
+
+    UPLOAD("upload"),
+    FEED("feed"),
+    OTHERS_FEED("others-feed"),
+    SHARE("share"),
+    RECYCLE("recycle"),
+    RESTORE("restore"),
+    DELETE("delete");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    String label() {
+        return label;
+    }
+
+    static Operation fromLabel(String label) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.label.equals(label))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation in --mix: " + label));
+    }
+}
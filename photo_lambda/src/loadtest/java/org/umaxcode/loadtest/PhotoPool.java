@@ -0,0 +1,80 @@
+package org.umaxcode.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Which photos each user has in the feed and in the recycle bin, so generated requests stay
+ * valid: only active photos are shared or recycled, only recycled ones are restored or deleted.
+ * Photos are taken out while their request runs and put back according to its outcome.
+ */
+final class PhotoPool {
+
+    // how many users to try before giving up on finding one with a photo in the wanted state
+    private static final int MAX_PICKS = 20;
+
+    private final List<String> users;
+    private final Map<String, List<String>> active = new HashMap<>();
+    private final Map<String, List<String>> recycled = new HashMap<>();
+    private final Random random;
+
+    PhotoPool(List<String> users, Random random) {
+        this.users = users;
+        this.random = random;
+        users.forEach(user -> {
+            active.put(user, new ArrayList<>());
+            recycled.put(user, new ArrayList<>());
+        });
+    }
+
+    String randomUser() {
+        return users.get(random.nextInt(users.size()));
+    }
+
+    void addActive(String user, String picId) {
+        active.get(user).add(picId);
+    }
+
+    void addRecycled(String user, String picId) {
+        recycled.get(user).add(picId);
+    }
+
+    /**
+     * A random active photo, left in place, or {@code null} when nobody has one.
+     */
+    Photo peekActive() {
+        return pick(active, false);
+    }
+
+    Photo takeActive() {
+        return pick(active, true);
+    }
+
+    Photo takeRecycled() {
+        return pick(recycled, true);
+    }
+
+    private Photo pick(Map<String, List<String>> photosByUser, boolean remove) {
+        for (int i = 0; i < MAX_PICKS; i++) {
+            String user = randomUser();
+            List<String> photos = photosByUser.get(user);
+            if (!photos.isEmpty()) {
+                int index = random.nextInt(photos.size());
+                String picId = photos.get(index);
+                if (remove) {
+                    // swap with the last element, order does not matter here
+                    photos.set(index, photos.get(photos.size() - 1));
+                    photos.remove(photos.size() - 1);
+                }
+                return new Photo(user, picId);
+            }
+        }
+        return null;
+    }
+
+    record Photo(String owner, String picId) {
+    }
+}
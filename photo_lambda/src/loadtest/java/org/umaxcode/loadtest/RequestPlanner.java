@@ -0,0 +1,159 @@
+package org.umaxcode.loadtest;
+
+import com.amazonaws.serverless.proxy.internal.testutils.AwsProxyRequestBuilder;
+import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Draws the next request from the configured mix and builds the API Gateway event for it, with
+ * the bearer token of the user it acts as. Photo states are updated once the outcome is known.
+ */
+final class RequestPlanner {
+
+    private static final String BOUNDARY = "loadtest-boundary";
+
+    private final LoadTestOptions options;
+    private final PhotoPool pool;
+    private final LoadTestEnvironment environment;
+    private final Random random;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final byte[] uploadBody;
+    private int uploads;
+
+    RequestPlanner(LoadTestOptions options, PhotoPool pool, LoadTestEnvironment environment, Random random) {
+        this.options = options;
+        this.pool = pool;
+        this.environment = environment;
+        this.random = random;
+
+        Map<Operation, Integer> mix = options.mix();
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.uploadBody = multipartBody(options.uploadSize(), random);
+    }
+
+    PlannedRequest next() {
+
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (draw >= cumulativeWeights[index]) {
+            index++;
+        }
+        Operation operation = operations[index];
+
+        PhotoPool.Photo photo = switch (operation) {
+            case SHARE -> pool.peekActive();
+            case RECYCLE -> pool.takeActive();
+            case RESTORE, DELETE -> pool.takeRecycled();
+            default -> null;
+        };
+
+        return switch (operation) {
+            case UPLOAD -> upload(pool.randomUser());
+            case FEED -> feed("own-photo", Operation.FEED);
+            case OTHERS_FEED -> feed("others-photo", Operation.OTHERS_FEED);
+            case SHARE -> planned(Operation.SHARE, photo, "/generate-pre-signed-url", "GET");
+            case RECYCLE -> planned(Operation.RECYCLE, photo, "/recycle-bin", "PATCH");
+            case RESTORE -> planned(Operation.RESTORE, photo, "/recycle-bin/restore", "PATCH");
+            case DELETE -> planned(Operation.DELETE, photo, "", "DELETE");
+        };
+    }
+
+    void settle(PlannedRequest planned, boolean succeeded) {
+
+        PhotoPool.Photo photo = planned.photo();
+        switch (planned.operation()) {
+            case RECYCLE -> {
+                if (succeeded) {
+                    pool.addRecycled(photo.owner(), photo.picId());
+                } else {
+                    pool.addActive(photo.owner(), photo.picId());
+                }
+            }
+            case RESTORE -> {
+                if (succeeded) {
+                    pool.addActive(photo.owner(), photo.picId());
+                } else {
+                    pool.addRecycled(photo.owner(), photo.picId());
+                }
+            }
+            case DELETE -> {
+                if (!succeeded) {
+                    pool.addRecycled(photo.owner(), photo.picId());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private PlannedRequest feed(String ownership, Operation operation) {
+        AwsProxyRequest request = authorized(new AwsProxyRequestBuilder("/photos/" + ownership, "GET"), pool.randomUser())
+                .queryString("limit", String.valueOf(options.pageSize()))
+                .build();
+        return new PlannedRequest(operation, request, null);
+    }
+
+    private PlannedRequest upload(String user) {
+        // the key is the file name, a new one per upload keeps the objects apart
+        AwsProxyRequest request = authorized(new AwsProxyRequestBuilder("/photos", "POST"), user)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .build();
+        String fileName = "loadtest-" + (++uploads) + ".jpg";
+        request.setBody(Base64.getEncoder().encodeToString(withFileName(fileName)));
+        request.setIsBase64Encoded(true);
+        return new PlannedRequest(Operation.UPLOAD, request, null);
+    }
+
+    private PlannedRequest planned(Operation operation, PhotoPool.Photo photo, String pathSuffix, String method) {
+        if (photo == null) {
+            // nobody has a photo in the state the operation needs, a feed request takes its slot
+            return feed("own-photo", Operation.FEED);
+        }
+        String path = "/photos/" + photo.picId() + pathSuffix;
+        AwsProxyRequest request = authorized(new AwsProxyRequestBuilder(path, method), photo.owner()).build();
+        return new PlannedRequest(operation, request, photo);
+    }
+
+    private AwsProxyRequestBuilder authorized(AwsProxyRequestBuilder builder, String user) {
+        return builder.header("Authorization", "Bearer " + environment.token(user));
+    }
+
+    private byte[] withFileName(String fileName) {
+        byte[] header = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"pic\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[header.length + uploadBody.length];
+        System.arraycopy(header, 0, body, 0, header.length);
+        System.arraycopy(uploadBody, 0, body, header.length, uploadBody.length);
+        return body;
+    }
+
+    // the photo bytes and the closing boundary, the part header is added per upload
+    private static byte[] multipartBody(int size, Random random) {
+        byte[] photo = new byte[size];
+        random.nextBytes(photo);
+        photo[0] = (byte) 0xFF;
+        photo[1] = (byte) 0xD8;
+        photo[2] = (byte) 0xFF;
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(size + 64);
+        body.writeBytes(photo);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    record PlannedRequest(Operation operation, AwsProxyRequest request, PhotoPool.Photo photo) {
+    }
+}
@@ -3,7 +3,9 @@ package org.umaxcode;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
+import org.umaxcode.config.NativeRuntimeHints;
 import org.umaxcode.controller.PingController;
 
 
@@ -11,6 +13,7 @@ import org.umaxcode.controller.PingController;
 // We use direct @Import instead of @ComponentScan to speed up cold starts
 // @ComponentScan(basePackages = "org.umaxcode.controller")
 @Import({ PingController.class })
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class Application {
 
     public static void main(String[] args) {
@@ -0,0 +1,61 @@
+package org.umaxcode.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.umaxcode.metrics.ConsumedCapacityInterceptor;
+import org.umaxcode.metrics.MetricsRecorder;
+import org.umaxcode.priming.PrimingInterceptor;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+@Configuration
+@ConditionalOnProperty(name = "application.aws.asyncEnabled", havingValue = "true")
+public class AWSAsyncConfig {
+
+    @Value("${application.aws.region}")
+    private String awsRegion;
+    @Value("${application.aws.asyncMaxConcurrency}")
+    private int maxConcurrency;
+
+    // one event loop shared by both clients, a Lambda container only serves one request at a time
+    @Bean(destroyMethod = "close")
+    public SdkAsyncHttpClient sdkAsyncHttpClient() {
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConcurrency)
+                .build();
+    }
+
+    @Bean
+    public DynamoDbAsyncClient dynamoDbAsyncClient(SdkAsyncHttpClient sdkAsyncHttpClient,
+                                                   AwsCredentialsProvider awsCredentialsProvider,
+                                                   MetricsRecorder metricsRecorder) {
+        return DynamoDbAsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .httpClient(sdkAsyncHttpClient)
+                .credentialsProvider(awsCredentialsProvider)
+                .overrideConfiguration(c -> {
+                    c.addExecutionInterceptor(new PrimingInterceptor());
+                    if (metricsRecorder.isEnabled()) {
+                        c.addExecutionInterceptor(new ConsumedCapacityInterceptor(metricsRecorder));
+                    }
+                })
+                .build();
+    }
+
+    @Bean
+    public S3AsyncClient s3AsyncClient(SdkAsyncHttpClient sdkAsyncHttpClient,
+                                       AwsCredentialsProvider awsCredentialsProvider) {
+        return S3AsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .httpClient(sdkAsyncHttpClient)
+                .credentialsProvider(awsCredentialsProvider)
+                .overrideConfiguration(c -> c.addExecutionInterceptor(new PrimingInterceptor()))
+                .build();
+    }
+}
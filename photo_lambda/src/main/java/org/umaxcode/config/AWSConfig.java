@@ -3,6 +3,12 @@ package org.umaxcode.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.umaxcode.aws.AwsClients;
+import org.umaxcode.aws.TimeoutProfile;
+import org.umaxcode.metrics.ConsumedCapacityInterceptor;
+import org.umaxcode.metrics.MetricsRecorder;
+import org.umaxcode.priming.PrimingInterceptor;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -14,24 +20,40 @@ public class AWSConfig {
     @Value("${application.aws.region}")
     private String awsRegion;
 
+    // shared so SnapStart restore can refresh the credentials every client signs with
     @Bean
-    public DynamoDbClient dynamoDbClient() {
-        return DynamoDbClient.builder()
+    public AwsCredentialsProvider awsCredentialsProvider() {
+        return AwsClients.credentialsProvider();
+    }
+
+    @Bean
+    public DynamoDbClient dynamoDbClient(AwsCredentialsProvider awsCredentialsProvider,
+                                         MetricsRecorder metricsRecorder) {
+        return AwsClients.configure(DynamoDbClient.builder(), TimeoutProfile.INTERACTIVE, c -> {
+                    c.addExecutionInterceptor(new PrimingInterceptor());
+                    if (metricsRecorder.isEnabled()) {
+                        c.addExecutionInterceptor(new ConsumedCapacityInterceptor(metricsRecorder));
+                    }
+                })
                 .region(Region.of(awsRegion))
+                .credentialsProvider(awsCredentialsProvider)
                 .build();
     }
 
     @Bean
-    public S3Client s3Client() {
-        return S3Client.builder()
+    public S3Client s3Client(AwsCredentialsProvider awsCredentialsProvider) {
+        return AwsClients.configure(S3Client.builder(), TimeoutProfile.TRANSFER,
+                        c -> c.addExecutionInterceptor(new PrimingInterceptor()))
                 .region(Region.of(awsRegion))
+                .credentialsProvider(awsCredentialsProvider)
                 .build();
     }
 
     @Bean
-    public S3Presigner s3Presigner() {
+    public S3Presigner s3Presigner(AwsCredentialsProvider awsCredentialsProvider) {
         return S3Presigner.builder()
                 .region(Region.of(awsRegion))
+                .credentialsProvider(awsCredentialsProvider)
                 .build();
     }
 }
@@ -0,0 +1,18 @@
+package org.umaxcode.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    // AWS calls spend their time blocked on I/O, so fan-out work runs on virtual threads
+    // and every caller bounds its own parallelism
+    @Bean(destroyMethod = "close")
+    public ExecutorService virtualThreadExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,79 @@
+package org.umaxcode.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.util.ClassUtils;
+import org.umaxcode.StreamLambdaHandler;
+import org.umaxcode.domain.dto.request.PhotoUploadUrlRequest;
+import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.dto.response.PhotoPageDto;
+import org.umaxcode.domain.dto.response.PhotoUploadDTo;
+import org.umaxcode.domain.dto.response.PhotoUploadUrlDto;
+import org.umaxcode.domain.dto.response.SuccessResponse;
+import org.umaxcode.exception.ErrorResponse;
+import org.umaxcode.repository.FeedVersionRepository;
+import org.umaxcode.repository.PhotoBlogRepository;
+import org.umaxcode.service.S3Service;
+
+import java.util.List;
+
+/**
+ * Hints for the native image build (-Pnative). Spring AOT covers the bean definitions, these cover
+ * what it cannot see: DTOs that only reach Jackson through {@code SuccessResponse.data}, the
+ * handler the Lambda runtime client loads by name and the SDK classes found through service files.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final List<Class<?>> JSON_TYPES = List.of(
+            SuccessResponse.class,
+            ErrorResponse.class,
+            GetPhotoDto.class,
+            PhotoPageDto.class,
+            PhotoUploadDTo.class,
+            PhotoUploadUrlDto.class,
+            PhotoUploadUrlRequest.class
+    );
+
+    // the proxy container reads and writes the API Gateway events with Jackson
+    private static final List<String> PROXY_EVENT_TYPES = List.of(
+            "com.amazonaws.serverless.proxy.model.AwsProxyRequest",
+            "com.amazonaws.serverless.proxy.model.AwsProxyResponse"
+    );
+
+    private static final List<String> SDK_SERVICE_TYPES = List.of(
+            "software.amazon.awssdk.http.apache.ApacheSdkHttpService",
+            "software.amazon.awssdk.http.urlconnection.UrlConnectionSdkHttpService",
+            "software.amazon.awssdk.http.nio.netty.NettySdkAsyncHttpService"
+    );
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+
+        BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+        JSON_TYPES.forEach(type -> bindingRegistrar.registerReflectionHints(hints.reflection(), type));
+        PROXY_EVENT_TYPES.stream()
+                .filter(type -> ClassUtils.isPresent(type, classLoader))
+                .forEach(type -> bindingRegistrar.registerReflectionHints(hints.reflection(),
+                        ClassUtils.resolveClassName(type, classLoader)));
+
+        hints.reflection().registerType(StreamLambdaHandler.class,
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+        // the filter chain is built from lambdas in SecurityConfig, keep its methods reachable
+        hints.reflection().registerType(SecurityConfig.class, MemberCategory.INVOKE_DECLARED_METHODS);
+
+        // MetricsBeanPostProcessor wraps these in JDK proxies at runtime
+        hints.proxies().registerJdkProxy(PhotoBlogRepository.class);
+        hints.proxies().registerJdkProxy(FeedVersionRepository.class);
+        hints.proxies().registerJdkProxy(S3Service.class);
+
+        // the SDK picks its HTTP client and interceptors through classpath lookups
+        SDK_SERVICE_TYPES.forEach(type -> hints.reflection().registerTypeIfPresent(classLoader, type,
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+        hints.resources().registerPattern("META-INF/services/software.amazon.awssdk.*");
+        hints.resources().registerPattern("software/amazon/awssdk/global/handlers/execution.interceptors");
+        hints.resources().registerPattern("software/amazon/awssdk/services/*/execution.interceptors");
+    }
+}
@@ -1,23 +1,43 @@
 package org.umaxcode.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Duration JWKS_TIMEOUT = Duration.ofSeconds(3);
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+    @Value("${application.security.prefetchJwks}")
+    private boolean prefetchJwks;
+    @Value("${application.security.verifiedTokenCache.maxEntries}")
+    private int verifiedTokenCacheMaxEntries;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -33,6 +53,42 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // kept eager under lazy initialization so the key set is still fetched during init
+    @Bean
+    @Lazy(false)
+    public JwtDecoder jwtDecoder() {
+
+        // Cognito publishes its keys at a fixed location, so no discovery request is needed
+        String jwkSetUri = issuerUri + "/.well-known/jwks.json";
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(JWKS_TIMEOUT);
+        requestFactory.setReadTimeout(JWKS_TIMEOUT);
+        RestOperations restOperations = new RestTemplate(requestFactory);
+
+        // the key set lives as long as the container; a token signed with an unknown kid makes Nimbus refetch it
+        Cache jwkSetCache = new ConcurrentMapCache("jwks");
+        if (prefetchJwks) {
+            prefetch(jwkSetCache, jwkSetUri, restOperations);
+        }
+
+        NimbusJwtDecoder decoder = NimbusJwtDecoder.withJwkSetUri(jwkSetUri)
+                .restOperations(restOperations)
+                .cache(jwkSetCache)
+                .build();
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+
+        return new CachingJwtDecoder(decoder, verifiedTokenCacheMaxEntries);
+    }
+
+    // done during init so the first request does not wait on the JWKS download
+    private void prefetch(Cache jwkSetCache, String jwkSetUri, RestOperations restOperations) {
+        try {
+            jwkSetCache.put(jwkSetUri, restOperations.getForObject(jwkSetUri, String.class));
+        } catch (RuntimeException ex) {
+            System.out.println("JWKS prefetch failed, it will be fetched on the first request: " + ex.getMessage());
+        }
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,95 @@
+package org.umaxcode.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the startup timeline recorded by {@link StartupTracingInitializer} to the log as a single
+ * JSON line once the context is refreshed: total time, time per step type and the slowest beans.
+ * {@code lazyInit} is part of the record so runs with and without the fast-startup profile can be
+ * compared from the logs.
+ */
+@Component
+@Profile("startup-trace")
+@RequiredArgsConstructor
+public class StartupTimelineReporter implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final int SLOWEST_BEANS = 20;
+
+    private final ObjectMapper objectMapper;
+    @Value("${spring.main.lazy-initialization:false}")
+    private boolean lazyInit;
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+
+        if (!(event.getApplicationContext() instanceof ConfigurableApplicationContext context)
+                || !(context.getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            return;
+        }
+
+        StartupTimeline timeline = startup.drainBufferedTimeline();
+        Map<String, StepTotal> steps = new TreeMap<>();
+        List<BeanTime> beans = new ArrayList<>();
+
+        for (StartupTimeline.TimelineEvent timelineEvent : timeline.getEvents()) {
+            StartupStep step = timelineEvent.getStartupStep();
+            long millis = timelineEvent.getDuration().toMillis();
+            steps.merge(step.getName(), new StepTotal(1, millis), StepTotal::plus);
+
+            if ("spring.beans.instantiate".equals(step.getName())) {
+                for (StartupStep.Tag tag : step.getTags()) {
+                    if ("beanName".equals(tag.getKey())) {
+                        beans.add(new BeanTime(tag.getValue(), millis));
+                    }
+                }
+            }
+        }
+
+        // instantiation times include the beans created as dependencies, so nested beans count twice
+        beans.sort(Comparator.comparingLong(BeanTime::millis).reversed());
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", "startup");
+        record.put("lazyInit", lazyInit);
+        record.put("jvmUptimeMs", ManagementFactory.getRuntimeMXBean().getUptime());
+        record.put("contextStart", timeline.getStartTime().toString());
+        record.put("beansInstantiated", beans.size());
+        record.put("steps", steps);
+        record.put("slowestBeans", beans.subList(0, Math.min(SLOWEST_BEANS, beans.size())));
+
+        try {
+            System.out.println(objectMapper.writeValueAsString(record));
+        } catch (JsonProcessingException ex) {
+            System.out.println("Could not write startup timeline: " + ex.getMessage());
+        }
+    }
+
+    record StepTotal(int count, long totalMs) {
+
+        StepTotal plus(StepTotal other) {
+            return new StepTotal(count + other.count, totalMs + other.totalMs);
+        }
+    }
+
+    record BeanTime(String bean, long millis) {
+    }
+}
@@ -0,0 +1,23 @@
+package org.umaxcode.config;
+
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Profiles;
+
+/**
+ * The proxy container builds the SpringApplication itself, so the step recorder is installed on
+ * the context here, before refresh. Only active with the {@code startup-trace} profile, the
+ * default recorder costs nothing.
+ */
+public class StartupTracingInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    private static final int STEP_CAPACITY = 10_000;
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        if (context.getEnvironment().acceptsProfiles(Profiles.of("startup-trace"))) {
+            context.setApplicationStartup(new BufferingApplicationStartup(STEP_CAPACITY));
+        }
+    }
+}
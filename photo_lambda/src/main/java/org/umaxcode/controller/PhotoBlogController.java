@@ -1,17 +1,30 @@
 package org.umaxcode.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.umaxcode.domain.dto.request.PhotoUploadUrlRequest;
 import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.dto.response.PhotoPageDto;
 import org.umaxcode.domain.dto.response.PhotoUploadDTo;
+import org.umaxcode.domain.dto.response.PhotoUploadUrlDto;
 import org.umaxcode.domain.dto.response.SuccessResponse;
 import org.umaxcode.service.PhotoBlogService;
+import org.umaxcode.utils.JsonFeedWriter;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/photos")
@@ -19,6 +32,9 @@ import java.util.List;
 public class PhotoBlogController {
 
     private final PhotoBlogService photoBlogService;
+    private final ObjectMapper objectMapper;
+    @Value("${application.aws.asyncEnabled}")
+    private boolean asyncEnabled;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -31,6 +47,18 @@ public class PhotoBlogController {
                 .build();
     }
 
+    @PostMapping("/upload-url")
+    @ResponseStatus(HttpStatus.OK)
+    public SuccessResponse generateUploadUrl(@RequestBody PhotoUploadUrlRequest request,
+                                             @AuthenticationPrincipal Jwt jwt) {
+
+        PhotoUploadUrlDto uploadUrl = photoBlogService.generateUploadUrl(request, jwt);
+        return SuccessResponse.builder()
+                .message("Upload url generated successfully")
+                .data(uploadUrl)
+                .build();
+    }
+
     @GetMapping("/{id}/generate-pre-signed-url")
     @ResponseStatus(HttpStatus.OK)
     public SuccessResponse generatePreSignedUrl(@PathVariable String id, @AuthenticationPrincipal Jwt jwt) {
@@ -44,21 +72,44 @@ public class PhotoBlogController {
     }
 
     @GetMapping("/{ownership-type}")
-    @ResponseStatus(HttpStatus.OK)
-    public SuccessResponse getAllPhotos(@PathVariable("ownership-type") String ownership, @AuthenticationPrincipal Jwt jwt) {
+    public SuccessResponse getAllPhotos(@PathVariable("ownership-type") String ownership,
+                                        @RequestParam(required = false) Integer limit,
+                                        @RequestParam(required = false) String cursor,
+                                        @AuthenticationPrincipal Jwt jwt,
+                                        ServletWebRequest webRequest) {
+
+        if (notModified(photoBlogService.getImagesVersionTag(ownership, limit, cursor, jwt), webRequest)) {
+            return null;
+        }
 
-        List<GetPhotoDto> images = photoBlogService.getImages(ownership, jwt);
+        PhotoPageDto page = photoBlogService.getImages(ownership, limit, cursor, jwt);
         return SuccessResponse.builder()
                 .message("All photos retrieved successfully")
-                .data(images)
+                .data(page.photos())
+                .nextCursor(page.nextCursor())
                 .build();
     }
 
+    @GetMapping(value = "/{ownership-type}", params = "stream=true")
+    public void streamAllPhotos(@PathVariable("ownership-type") String ownership,
+                                @RequestParam(required = false) Integer limit,
+                                @RequestParam(required = false) String cursor,
+                                @AuthenticationPrincipal Jwt jwt,
+                                HttpServletResponse response) throws IOException {
+
+        // photos are written as they are read, a page is capped and continued with the cursor as without streaming
+        JsonFeedWriter writer = new JsonFeedWriter(objectMapper, response, "All photos retrieved successfully");
+        String nextCursor = photoBlogService.streamImages(ownership, limit, cursor, jwt, writer);
+        writer.finish(nextCursor);
+    }
+
     @PatchMapping("/{id}/recycle-bin")
     @ResponseStatus(HttpStatus.OK)
     public SuccessResponse movePhotoToRecycleBin(@PathVariable String id, @AuthenticationPrincipal Jwt jwt) {
 
-        GetPhotoDto updateResponse = photoBlogService.moveToRecycleBin(id, jwt);
+        GetPhotoDto updateResponse = asyncEnabled
+                ? await(photoBlogService.moveToRecycleBinAsync(id, jwt))
+                : photoBlogService.moveToRecycleBin(id, jwt);
         return SuccessResponse.builder()
                 .message("Photo moved to recycling bin successfully")
                 .data(updateResponse)
@@ -66,8 +117,11 @@ public class PhotoBlogController {
     }
 
     @GetMapping("/recycle-bin")
-    @ResponseStatus(HttpStatus.OK)
-    public SuccessResponse getAllPhotosInRecyclingBin(@AuthenticationPrincipal Jwt jwt){
+    public SuccessResponse getAllPhotosInRecyclingBin(@AuthenticationPrincipal Jwt jwt, ServletWebRequest webRequest){
+
+        if (notModified(photoBlogService.recycleBinVersionTag(jwt), webRequest)) {
+            return null;
+        }
 
         List<GetPhotoDto> recycledImages = photoBlogService.retrieveAllImagesInRecyclingBin(jwt);
         return SuccessResponse.builder()
@@ -80,7 +134,9 @@ public class PhotoBlogController {
     @ResponseStatus(HttpStatus.OK)
     public SuccessResponse restorePhotoFromRecycleBin(@PathVariable String id, @AuthenticationPrincipal Jwt jwt) {
 
-        GetPhotoDto updateResponse = photoBlogService.restoreFromRecycleBin(id, jwt);
+        GetPhotoDto updateResponse = asyncEnabled
+                ? await(photoBlogService.restoreFromRecycleBinAsync(id, jwt))
+                : photoBlogService.restoreFromRecycleBin(id, jwt);
         return SuccessResponse.builder()
                 .message("Photo has been restored successfully")
                 .data(updateResponse)
@@ -91,7 +147,38 @@ public class PhotoBlogController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deletePhoto(@PathVariable String id, @AuthenticationPrincipal Jwt jwt) {
 
+        if (asyncEnabled) {
+            await(photoBlogService.deleteImageAsync(id, jwt));
+            return;
+        }
         photoBlogService.deleteImage(id, jwt);
     }
 
+    // answers 304 when the client already holds this version. Endpoints using it leave out @ResponseStatus,
+    // which would overwrite the 304 with its own status
+    private static boolean notModified(String versionTag, ServletWebRequest webRequest) {
+        if (versionTag == null) {
+            return false;
+        }
+
+        // the browser keeps the page but asks again every time, the tag makes that ask cheap
+        if (webRequest.getResponse() != null) {
+            webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL,
+                    CacheControl.noCache().cachePrivate().getHeaderValue());
+        }
+        return webRequest.checkNotModified(versionTag);
+    }
+
+    // rethrows the original failure so the exception handlers map it exactly like the blocking path
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
 }
@@ -0,0 +1,7 @@
+package org.umaxcode.domain.dto.request;
+
+public record PhotoUploadUrlRequest(
+        String contentType,
+        Long contentLength
+) {
+}
@@ -1,5 +1,6 @@
 package org.umaxcode.domain.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Getter;
@@ -11,5 +12,6 @@ public class GetPhotoDto {
     private String imgId;
     private String image;
     private String uploadDateTime;
-    private String resignUrlGenDateTime;
+    @JsonIgnore
+    private String objectKey;
 }
@@ -0,0 +1,12 @@
+package org.umaxcode.domain.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record PhotoPageDto(
+        List<GetPhotoDto> photos,
+        String nextCursor
+) {
+}
@@ -0,0 +1,15 @@
+package org.umaxcode.domain.dto.response;
+
+import lombok.Builder;
+
+import java.util.Map;
+
+@Builder
+public record PhotoUploadUrlDto(
+        String uploadUrl,
+        String method,
+        Map<String, String> headers,
+        String objectKey,
+        String expiresAt
+) {
+}
@@ -13,4 +13,5 @@ public class SuccessResponse {
 
     private String message;
     private Object data;
+    private String nextCursor;
 }
@@ -0,0 +1,100 @@
+package org.umaxcode.domain.mapper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.exception.PhotoBlogException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads photo items in both storage formats. Current items store the S3 {@code objectKey};
+ * items written before that stored a pre-signed url in {@code picUrl}, which is only read
+ * while {@code legacyPicUrlReads} is on. Items from the image processor may also list smaller
+ * copies in {@code derivatives}, keyed by name, which lists show instead of the original.
+ */
+@Component
+public class PhotoItemMapper {
+
+    @Value("${application.photos.legacyPicUrlReads}")
+    private boolean legacyPicUrlReads;
+    @Value("${application.feed.derivative}")
+    private String feedDerivative;
+
+    public String objectKey(Map<String, AttributeValue> item) {
+
+        AttributeValue objectKey = item.get("objectKey");
+        if (objectKey != null) {
+            return objectKey.s();
+        }
+
+        AttributeValue picUrl = item.get("picUrl");
+        if (legacyPicUrlReads && picUrl != null) {
+            return fromPreSignedUrl(picUrl.s());
+        }
+
+        throw new PhotoBlogException("Image with id = " + item.get("picId").s() + " has no object key");
+    }
+
+    public GetPhotoDto toPhotoDto(Map<String, AttributeValue> item) {
+        return GetPhotoDto.builder()
+                .imgId(item.get("picId").s())
+                .objectKey(displayKey(item))
+                .uploadDateTime(item.get("dateOfUpload").s())
+                .build();
+    }
+
+    public List<String> derivativeKeys(Map<String, AttributeValue> item) {
+        return List.copyOf(derivatives(item).values());
+    }
+
+    /**
+     * Derivative keys by derivative name, empty for photos without derivatives.
+     */
+    public Map<String, String> derivatives(Map<String, AttributeValue> item) {
+
+        AttributeValue derivatives = item.get("derivatives");
+        if (derivatives == null || !derivatives.hasM()) {
+            return Map.of();
+        }
+        Map<String, String> keys = new LinkedHashMap<>();
+        derivatives.m().forEach((name, key) -> keys.put(name, key.s()));
+        return keys;
+    }
+
+    // photos processed before derivatives existed, or too small to need one, only have the original
+    private String displayKey(Map<String, AttributeValue> item) {
+
+        AttributeValue derivatives = item.get("derivatives");
+        if (feedDerivative != null && !feedDerivative.isBlank() && derivatives != null && derivatives.hasM()) {
+            AttributeValue derivative = derivatives.m().get(feedDerivative);
+            if (derivative != null) {
+                return derivative.s();
+            }
+        }
+        return objectKey(item);
+    }
+
+    public static String fromPreSignedUrl(String s3Url) {
+        try {
+            URI uri = new URI(s3Url);
+
+            // Get the path part of the URL (e.g., "/subfolder/file.txt")
+            String path = uri.getPath();
+
+            // Remove the leading slash to get the object key
+            if (path.startsWith("/")) {
+                path = path.substring(1);
+            }
+
+            return path;
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid URL: " + s3Url);
+        }
+    }
+}
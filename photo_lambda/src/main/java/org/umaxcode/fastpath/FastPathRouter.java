@@ -0,0 +1,213 @@
+package org.umaxcode.fastpath;
+
+import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import com.amazonaws.serverless.proxy.model.Headers;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.umaxcode.domain.dto.response.PhotoUploadDTo;
+import org.umaxcode.domain.dto.response.SuccessResponse;
+import org.umaxcode.exception.ErrorResponse;
+import org.umaxcode.exception.PhotoBlogException;
+import org.umaxcode.service.PhotoBlogService;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves a few hot GET routes straight from the API Gateway event, without the servlet
+ * emulation, filter chain and dispatcher. Responses match what the Spring path returns for the
+ * same request: CORS rejection and headers as {@code CorsFilter} applies them, bearer token
+ * checks as {@code BearerTokenAuthenticationFilter} does, the default security headers and the
+ * error bodies. Anything it does not recognise returns {@code null} and goes through Spring as before.
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "application.fastPath.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class FastPathRouter {
+
+    private static final Pattern PRE_SIGNED_URL_PATH = Pattern.compile("^/photos/([^/]+)/generate-pre-signed-url/?$");
+    // the token syntax DefaultBearerTokenResolver accepts, anything else after "Bearer" is malformed
+    private static final Pattern BEARER_TOKEN = Pattern.compile("^Bearer (?<token>[a-zA-Z0-9-._~+/]+=*)$",
+            Pattern.CASE_INSENSITIVE);
+    private static final String INVALID_TOKEN_URI = "https://tools.ietf.org/html/rfc6750#section-3.1";
+    private static volatile FastPathRouter instance;
+
+    private final PhotoBlogService photoBlogService;
+    private final JwtDecoder jwtDecoder;
+    private final ObjectMapper objectMapper;
+    private final CorsConfigurationSource corsConfigurationSource;
+
+    @PostConstruct
+    void register() {
+        instance = this;
+    }
+
+    /**
+     * The router when the fast path is enabled, otherwise {@code null}.
+     */
+    public static FastPathRouter instance() {
+        return instance;
+    }
+
+    public AwsProxyResponse route(AwsProxyRequest request) {
+
+        if (!"GET".equals(request.getHttpMethod()) || request.getPath() == null) {
+            return null;
+        }
+
+        Matcher matcher = PRE_SIGNED_URL_PATH.matcher(request.getPath());
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        Headers headers = securityHeaders();
+        // CorsFilter runs ahead of authentication, so a rejected origin never gets to the token check
+        if (!applyCors(request, headers)) {
+            return new AwsProxyResponse(HttpStatus.FORBIDDEN.value(), headers, "Invalid CORS request");
+        }
+
+        Jwt jwt = authenticate(request, headers);
+        if (jwt == null) {
+            return new AwsProxyResponse(HttpStatus.UNAUTHORIZED.value(), headers, null);
+        }
+
+        try {
+            PhotoUploadDTo generatedUrl = photoBlogService.generatePreSignedUrl(matcher.group(1), jwt);
+            return json(HttpStatus.OK, headers, SuccessResponse.builder()
+                    .message("Pre-signed url generated successfully")
+                    .data(generatedUrl)
+                    .build());
+        } catch (PhotoBlogException ex) {
+            return json(HttpStatus.BAD_REQUEST, headers, error(request, ex.getMessage()));
+        } catch (RuntimeException ex) {
+            // same mapping as GlobalExceptionHandler
+            return json(HttpStatus.NOT_FOUND, headers, error(request, ex.getMessage()));
+        }
+    }
+
+    private Jwt authenticate(AwsProxyRequest request, Headers responseHeaders) {
+
+        String authorization = header(request, HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer", 0, 6)) {
+            responseHeaders.putSingle(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            return null;
+        }
+
+        Matcher token = BEARER_TOKEN.matcher(authorization);
+        if (!token.matches()) {
+            responseHeaders.putSingle(HttpHeaders.WWW_AUTHENTICATE, invalidToken("Bearer token is malformed"));
+            return null;
+        }
+
+        try {
+            return jwtDecoder.decode(token.group("token"));
+        } catch (BadJwtException ex) {
+            responseHeaders.putSingle(HttpHeaders.WWW_AUTHENTICATE, invalidToken(ex.getMessage()));
+            return null;
+        } catch (JwtException ex) {
+            // not a verdict on the token, a failed key set download say, Spring answers it without error details
+            responseHeaders.putSingle(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            return null;
+        }
+    }
+
+    // the header BearerTokenAuthenticationEntryPoint writes for an invalid token
+    private static String invalidToken(String description) {
+        return "Bearer error=\"invalid_token\", error_description=\"" + description.replace("\"", "'")
+                + "\", error_uri=\"" + INVALID_TOKEN_URI + "\"";
+    }
+
+    /**
+     * Adds what DefaultCorsProcessor adds to an actual request and returns {@code false} where it
+     * would reject the request with 403. Same origin requests are not CORS requests and pass.
+     */
+    private boolean applyCors(AwsProxyRequest request, Headers headers) {
+
+        if (!(corsConfigurationSource instanceof UrlBasedCorsConfigurationSource source)) {
+            return true;
+        }
+        CorsConfiguration cors = source.getCorsConfigurations().get("/**");
+        if (cors == null) {
+            return true;
+        }
+
+        headers.add(HttpHeaders.VARY, HttpHeaders.ORIGIN);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+
+        String origin = header(request, HttpHeaders.ORIGIN);
+        if (origin == null || isSameOrigin(request, origin)) {
+            return true;
+        }
+
+        String allowedOrigin = cors.checkOrigin(origin);
+        if (allowedOrigin == null || cors.checkHttpMethod(HttpMethod.GET) == null) {
+            return false;
+        }
+        headers.putSingle(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, allowedOrigin);
+        if (Boolean.TRUE.equals(cors.getAllowCredentials())) {
+            headers.putSingle(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+        }
+        return true;
+    }
+
+    // the container reports the scheme from X-Forwarded-Proto, https when API Gateway leaves it out
+    private static boolean isSameOrigin(AwsProxyRequest request, String origin) {
+        String host = header(request, HttpHeaders.HOST);
+        String scheme = Objects.requireNonNullElse(header(request, "X-Forwarded-Proto"), "https");
+        return host != null && origin.equalsIgnoreCase(scheme + "://" + host);
+    }
+
+    // the defaults Spring Security's HeaderWriterFilter puts on every response
+    private static Headers securityHeaders() {
+        Headers headers = new Headers();
+        headers.putSingle("X-Content-Type-Options", "nosniff");
+        headers.putSingle("X-XSS-Protection", "0");
+        headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, max-age=0, must-revalidate");
+        headers.putSingle(HttpHeaders.PRAGMA, "no-cache");
+        headers.putSingle(HttpHeaders.EXPIRES, "0");
+        headers.putSingle("X-Frame-Options", "DENY");
+        return headers;
+    }
+
+    private static String header(AwsProxyRequest request, String name) {
+        return request.getMultiValueHeaders() == null ? null : request.getMultiValueHeaders().getFirst(name);
+    }
+
+    private ErrorResponse error(AwsProxyRequest request, String message) {
+        return ErrorResponse.builder()
+                .path(request.getPath())
+                .message(message)
+                .timestamp(LocalDateTime.now().toString())
+                .build();
+    }
+
+    private AwsProxyResponse json(HttpStatus status, Headers headers, Object body) {
+        try {
+            headers.putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            return new AwsProxyResponse(status.value(), headers, objectMapper.writeValueAsString(body));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
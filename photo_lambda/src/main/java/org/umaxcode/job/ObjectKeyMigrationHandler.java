@@ -0,0 +1,46 @@
+package org.umaxcode.job;
+
+import org.umaxcode.domain.mapper.PhotoItemMapper;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Map;
+
+/**
+ * One-off job that rewrites items still storing a pre-signed url in {@code picUrl} to the
+ * {@code objectKey} format. Keep {@code LEGACY_PIC_URL_READS} on for the API until a run
+ * returns without a cursor, see {@link TableMigrationJob} for resuming.
+ */
+public class ObjectKeyMigrationHandler extends TableMigrationJob {
+
+    @Override
+    protected ScanRequest scanRequest() {
+        return ScanRequest.builder()
+                .tableName(tableName)
+                .filterExpression("attribute_exists(picUrl) AND attribute_not_exists(objectKey)")
+                .projectionExpression("picId, picUrl")
+                .build();
+    }
+
+    @Override
+    protected UpdateItemRequest updateRequest(Map<String, AttributeValue> item) {
+        AttributeValue picUrl = item.get("picUrl");
+        return UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("picId", item.get("picId")))
+                .updateExpression("SET objectKey = :objectKey REMOVE picUrl, preSignedUrlGenDate")
+                // the API may have moved the photo since the scan read it, that write already migrated it
+                .conditionExpression("picUrl = :picUrl")
+                .expressionAttributeValues(Map.of(
+                        ":objectKey", AttributeValue.builder().s(PhotoItemMapper.fromPreSignedUrl(picUrl.s())).build(),
+                        ":picUrl", picUrl
+                ))
+                .build();
+    }
+
+    @Override
+    protected String name() {
+        return "Object key migration";
+    }
+}
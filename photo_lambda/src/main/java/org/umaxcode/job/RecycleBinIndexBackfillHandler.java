@@ -0,0 +1,51 @@
+package org.umaxcode.job;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Map;
+
+/**
+ * One-off job that sets {@code recycledOwner} on photos that were placed in the recycle bin
+ * before recycleBinIndex existed. Invoke it manually, see {@link TableMigrationJob} for resuming.
+ */
+public class RecycleBinIndexBackfillHandler extends TableMigrationJob {
+
+    @Override
+    protected ScanRequest scanRequest() {
+        return ScanRequest.builder()
+                .tableName(tableName)
+                .filterExpression("isPlacedInRecycleBin = :true AND attribute_not_exists(recycledOwner)")
+                .projectionExpression("picId, #owner")
+                .expressionAttributeValues(Map.of(
+                        ":true", AttributeValue.builder().n("1").build()
+                ))
+                .expressionAttributeNames(Map.of(
+                        "#owner", "owner"
+                ))
+                .build();
+    }
+
+    @Override
+    protected UpdateItemRequest updateRequest(Map<String, AttributeValue> item) {
+        return UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("picId", item.get("picId")))
+                .updateExpression("SET recycledOwner = #owner")
+                // the photo may have been restored or backfilled since the scan read it
+                .conditionExpression("isPlacedInRecycleBin = :true AND attribute_not_exists(recycledOwner)")
+                .expressionAttributeValues(Map.of(
+                        ":true", AttributeValue.builder().n("1").build()
+                ))
+                .expressionAttributeNames(Map.of(
+                        "#owner", "owner"
+                ))
+                .build();
+    }
+
+    @Override
+    protected String name() {
+        return "Recycle bin index backfill";
+    }
+}
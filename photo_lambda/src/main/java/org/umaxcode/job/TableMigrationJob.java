@@ -0,0 +1,105 @@
+package org.umaxcode.job;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.umaxcode.aws.AwsClients;
+import org.umaxcode.aws.InitTimer;
+import org.umaxcode.aws.TimeoutProfile;
+import org.umaxcode.repository.impl.ConcurrentItemUpdater;
+import org.umaxcode.utils.CursorCodec;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Base for one-off jobs that rewrite table items in place. The table is scanned one page at a
+ * time and each page is updated before the next one is read, so memory stays flat however large
+ * the table is. When the function runs out of time it returns a cursor, pass it back as
+ * {@code {"cursor": "..."}} to continue where it stopped.
+ * <p>
+ * Updates should carry a condition that only holds while the item still needs the change;
+ * items failing it are counted as skipped, which makes a run safe to repeat.
+ */
+public abstract class TableMigrationJob implements RequestHandler<Map<String, Object>, Map<String, Object>> {
+
+    // stop scanning when less than this is left, so the response still makes it back
+    private static final long TIME_RESERVE_MILLIS = 10_000;
+    private static final int DEFAULT_PARALLELISM = 16;
+
+    protected final DynamoDbClient dynamoDbClient;
+    protected final String tableName;
+    private final ConcurrentItemUpdater itemUpdater;
+
+    protected TableMigrationJob() {
+        InitTimer initTimer = InitTimer.start(getClass().getSimpleName());
+        this.dynamoDbClient = AwsClients.configure(DynamoDbClient.builder(), TimeoutProfile.BACKGROUND).build();
+        this.tableName = System.getenv("AWS_DYNAMODB_TABLE_NAME");
+        String parallelism = System.getenv("DYNAMODB_WRITE_BACK_PARALLELISM");
+        this.itemUpdater = new ConcurrentItemUpdater(dynamoDbClient,
+                Executors.newVirtualThreadPerTaskExecutor(),
+                parallelism == null ? DEFAULT_PARALLELISM : Integer.parseInt(parallelism));
+        initTimer.done();
+    }
+
+    /**
+     * Scan selecting the items that still need migrating, without the start key.
+     */
+    protected abstract ScanRequest scanRequest();
+
+    /**
+     * Conditional update for a single item returned by {@link #scanRequest()}.
+     */
+    protected abstract UpdateItemRequest updateRequest(Map<String, AttributeValue> item);
+
+    protected abstract String name();
+
+    @Override
+    public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
+
+        Map<String, AttributeValue> exclusiveStartKey = CursorCodec.decode((String) event.get("cursor"));
+        int updated = 0;
+        int skipped = 0;
+        int failed = 0;
+
+        do {
+            ScanResponse scanResponse = dynamoDbClient.scan(scanRequest().toBuilder()
+                    .exclusiveStartKey(exclusiveStartKey)
+                    .build());
+
+            Map<String, UpdateItemRequest> requests = new LinkedHashMap<>();
+            for (Map<String, AttributeValue> item : scanResponse.items()) {
+                requests.put(item.get("picId").s(), updateRequest(item));
+            }
+
+            ConcurrentItemUpdater.BatchUpdateResult result = itemUpdater.updateAll(requests);
+            updated += result.updated().size();
+            for (Map.Entry<String, Throwable> failure : result.failures().entrySet()) {
+                if (failure.getValue() instanceof ConditionalCheckFailedException) {
+                    skipped++;
+                } else {
+                    failed++;
+                    context.getLogger().log(name() + ": failed to update " + failure.getKey()
+                            + ": " + failure.getValue().getMessage());
+                }
+            }
+
+            exclusiveStartKey = scanResponse.hasLastEvaluatedKey() ? scanResponse.lastEvaluatedKey() : null;
+        } while (exclusiveStartKey != null && context.getRemainingTimeInMillis() > TIME_RESERVE_MILLIS);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("updated", updated);
+        result.put("skipped", skipped);
+        result.put("failed", failed);
+        result.put("cursor", CursorCodec.encode(exclusiveStartKey));
+        context.getLogger().log(name() + ": " + result);
+        return result;
+    }
+}
@@ -0,0 +1,70 @@
+package org.umaxcode.metrics;
+
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Asks DynamoDB for the capacity consumed by queries and scans, the calls whose cost grows with
+ * the data, and records whatever capacity any response reports against its operation name. The
+ * batch and transaction calls report one entry per table, which are summed.
+ */
+public class ConsumedCapacityInterceptor implements ExecutionInterceptor {
+
+    private final MetricsRecorder metricsRecorder;
+
+    public ConsumedCapacityInterceptor(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    @Override
+    public SdkRequest modifyRequest(Context.ModifyRequest context, ExecutionAttributes executionAttributes) {
+
+        SdkRequest request = context.request();
+        if (request instanceof QueryRequest query && query.returnConsumedCapacity() == null) {
+            return query.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        }
+        if (request instanceof ScanRequest scan && scan.returnConsumedCapacity() == null) {
+            return scan.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        }
+        return request;
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+
+        // a single value on item, query and scan calls, one per table on the batch and transaction calls
+        Object reported = context.response().getValueForField("ConsumedCapacity", Object.class).orElse(null);
+        List<ConsumedCapacity> capacities = reported instanceof List<?> list
+                ? list.stream().filter(ConsumedCapacity.class::isInstance).map(ConsumedCapacity.class::cast).toList()
+                : reported instanceof ConsumedCapacity capacity ? List.of(capacity) : List.of();
+
+        Double capacityUnits = null;
+        Set<String> tableNames = new LinkedHashSet<>();
+        for (ConsumedCapacity capacity : capacities) {
+            if (capacity.capacityUnits() != null) {
+                capacityUnits = (capacityUnits == null ? 0 : capacityUnits) + capacity.capacityUnits();
+                if (capacity.tableName() != null) {
+                    tableNames.add(capacity.tableName());
+                }
+            }
+        }
+        if (capacityUnits == null) {
+            return;
+        }
+        metricsRecorder.recordConsumedCapacity(
+                executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME),
+                tableNames.isEmpty() ? null : String.join(",", tableNames),
+                capacityUnits);
+    }
+}
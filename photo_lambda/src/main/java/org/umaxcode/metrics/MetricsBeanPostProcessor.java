@@ -0,0 +1,79 @@
+package org.umaxcode.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.umaxcode.repository.FeedVersionRepository;
+import org.umaxcode.repository.PhotoBlogRepository;
+import org.umaxcode.service.S3Service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wraps the repository and the S3 service so every call is timed, without touching their
+ * implementations. Calls returning a future are timed until the future completes.
+ */
+@Component
+@RequiredArgsConstructor
+public class MetricsBeanPostProcessor implements BeanPostProcessor {
+
+    private static final List<Class<?>> INSTRUMENTED_TYPES = List.of(
+            PhotoBlogRepository.class, FeedVersionRepository.class, S3Service.class);
+
+    // looked up when the first instrumented bean shows up, post processors are created before other beans
+    private final ObjectProvider<MetricsRecorder> metricsRecorder;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+
+        for (Class<?> type : INSTRUMENTED_TYPES) {
+            if (type.isInstance(bean)) {
+                MetricsRecorder recorder = metricsRecorder.getObject();
+                return recorder.isEnabled() ? instrument(type, bean, recorder) : bean;
+            }
+        }
+        return bean;
+    }
+
+    private static Object instrument(Class<?> type, Object target, MetricsRecorder recorder) {
+
+        String service = type.getSimpleName();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return invoke(target, method, args);
+            }
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invoke(target, method, args);
+            } catch (Throwable ex) {
+                recorder.recordCall(service, method.getName(), start, true);
+                throw ex;
+            }
+
+            if (result instanceof CompletableFuture<?> future) {
+                return future.whenComplete((value, ex) ->
+                        recorder.recordCall(service, method.getName(), start, ex != null));
+            }
+            recorder.recordCall(service, method.getName(), start, false);
+            return result;
+        };
+
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
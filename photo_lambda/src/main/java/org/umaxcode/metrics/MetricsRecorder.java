@@ -0,0 +1,156 @@
+package org.umaxcode.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Collects call latencies, error counts and DynamoDB consumed capacity during an invocation and
+ * writes them to stdout in CloudWatch embedded metric format, one line per operation. CloudWatch
+ * Logs turns the lines into metrics, so nothing waits on a metrics endpoint. Latencies are kept
+ * as raw values, which gives percentiles rather than only averages.
+ */
+@Component
+@Lazy(false)
+public class MetricsRecorder {
+
+    // the most values a single metric may carry in one EMF document
+    private static final int MAX_VALUES = 100;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static volatile MetricsRecorder instance;
+
+    private final Map<Key, Series> series = new ConcurrentHashMap<>();
+    @Value("${application.metrics.enabled}")
+    private boolean enabled;
+    @Value("${application.metrics.namespace}")
+    private String namespace;
+
+    @PostConstruct
+    void register() {
+        instance = this;
+    }
+
+    /**
+     * The recorder once the application context is up, otherwise {@code null}.
+     */
+    public static MetricsRecorder instance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void recordCall(String service, String operation, long startNanos, boolean failed) {
+        double latencyMillis = Math.round((System.nanoTime() - startNanos) / 10_000.0) / 100.0;
+        record(new Key(service, operation), s -> {
+            s.latencies.add(latencyMillis);
+            if (failed) {
+                s.errors++;
+            }
+            return s.latencies.size() >= MAX_VALUES;
+        });
+    }
+
+    public void recordConsumedCapacity(String operation, String tableName, double capacityUnits) {
+        record(new Key("DynamoDB", operation), s -> {
+            s.tableName = tableName;
+            s.consumedCapacity.add(capacityUnits);
+            return s.consumedCapacity.size() >= MAX_VALUES;
+        });
+    }
+
+    /**
+     * Writes everything recorded so far, called at the end of each invocation.
+     */
+    public void flush() {
+        for (Key key : series.keySet()) {
+            Series removed = series.remove(key);
+            if (removed != null) {
+                write(key, removed);
+            }
+        }
+    }
+
+    /**
+     * Drops everything recorded so far without writing it, used after priming.
+     */
+    public void discard() {
+        series.clear();
+    }
+
+    // the update returns true once the series has reached the EMF value limit
+    private void record(Key key, Predicate<Series> update) {
+        if (!enabled) {
+            return;
+        }
+
+        Series[] full = new Series[1];
+        // updated inside compute, so a concurrent flush cannot take the series away between looking it up and updating it
+        series.compute(key, (k, current) -> {
+            Series s = current != null ? current : new Series();
+            if (update.test(s)) {
+                // a full series is written straight away, the next call starts a new one
+                full[0] = s;
+                return null;
+            }
+            return s;
+        });
+        if (full[0] != null) {
+            write(key, full[0]);
+        }
+    }
+
+    private void write(Key key, Series s) {
+
+        List<Map<String, String>> metrics = new ArrayList<>();
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("_aws", Map.of(
+                "Timestamp", System.currentTimeMillis(),
+                "CloudWatchMetrics", List.of(Map.of(
+                        "Namespace", namespace,
+                        "Dimensions", List.of(List.of("Service", "Operation")),
+                        "Metrics", metrics))));
+        document.put("Service", key.service());
+        document.put("Operation", key.operation());
+
+        if (!s.latencies.isEmpty()) {
+            metrics.add(Map.of("Name", "Latency", "Unit", "Milliseconds"));
+            metrics.add(Map.of("Name", "Calls", "Unit", "Count"));
+            metrics.add(Map.of("Name", "Errors", "Unit", "Count"));
+            document.put("Latency", s.latencies);
+            document.put("Calls", s.latencies.size());
+            document.put("Errors", s.errors);
+        }
+        if (!s.consumedCapacity.isEmpty()) {
+            metrics.add(Map.of("Name", "ConsumedCapacity", "Unit", "Count"));
+            document.put("ConsumedCapacity", s.consumedCapacity);
+            document.put("TableName", s.tableName);
+        }
+        try {
+            System.out.println(OBJECT_MAPPER.writeValueAsString(document));
+        } catch (JsonProcessingException ex) {
+            System.out.println("Could not write metrics: " + ex.getMessage());
+        }
+    }
+
+    private record Key(String service, String operation) {
+    }
+
+    private static class Series {
+        private final List<Double> latencies = new ArrayList<>();
+        private final List<Double> consumedCapacity = new ArrayList<>();
+        private int errors;
+        private String tableName;
+    }
+}
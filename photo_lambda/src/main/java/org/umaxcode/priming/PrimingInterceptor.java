@@ -0,0 +1,38 @@
+package org.umaxcode.priming;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Stops SDK calls right before they go on the wire while priming is active. By then the request
+ * has been marshalled and SigV4-signed, which is the work priming is after, and nothing reaches
+ * DynamoDB or S3 from the snapshot.
+ */
+public class PrimingInterceptor implements ExecutionInterceptor {
+
+    private static volatile boolean active;
+
+    public static void activate() {
+        active = true;
+    }
+
+    public static void deactivate() {
+        active = false;
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        if (active) {
+            throw new PrimingShortCircuitException();
+        }
+    }
+
+    // not an IOException, so the SDK does not retry it
+    public static class PrimingShortCircuitException extends RuntimeException {
+
+        public PrimingShortCircuitException() {
+            super("AWS call skipped while priming", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.umaxcode.priming;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.dto.response.SuccessResponse;
+import org.umaxcode.service.PhotoBlogService;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Application side of SnapStart priming. The authenticated routes cannot be reached with a
+ * synthetic request, so their services are called directly with a synthetic token while
+ * {@link PrimingInterceptor} keeps the AWS calls from leaving the process.
+ */
+@Component
+@Lazy(false)
+@RequiredArgsConstructor
+public class SnapStartPrimer {
+
+    private static volatile SnapStartPrimer instance;
+
+    // resolved when priming runs, so registering the primer does not initialize the services early
+    private final ObjectProvider<PhotoBlogService> photoBlogService;
+    private final ObjectProvider<S3Presigner> s3Presigner;
+    private final ObjectProvider<ObjectMapper> objectMapper;
+    private final ObjectProvider<AwsCredentialsProvider> awsCredentialsProvider;
+    @Value("${application.aws.primaryBucketName}")
+    private String primaryBucketName;
+
+    @PostConstruct
+    void register() {
+        instance = this;
+    }
+
+    public static SnapStartPrimer instance() {
+        return instance;
+    }
+
+    public void prime() throws Exception {
+
+        Jwt jwt = Jwt.withTokenValue("priming")
+                .header("alg", "none")
+                .claim("email", "priming@localhost")
+                .claim("given_name", "Priming")
+                .claim("family_name", "Request")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+
+        // both feeds marshal and sign their first DynamoDB request before the interceptor stops them
+        for (String ownership : List.of("own-photo", "others-photo")) {
+            try {
+                photoBlogService.getObject().getImages(ownership, 1, null, jwt);
+            } catch (RuntimeException expected) {
+                // PrimingShortCircuitException, possibly wrapped by the SDK
+            }
+        }
+
+        // the presigner signs locally, so it is warmed for real; the url is thrown away
+        s3Presigner.getObject().presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofHours(24))
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket(primaryBucketName)
+                        .key("priming.jpg")
+                        .build())
+                .build());
+
+        objectMapper.getObject().writeValueAsBytes(SuccessResponse.builder()
+                .message("priming")
+                .data(List.of(GetPhotoDto.builder()
+                        .imgId("priming")
+                        .image("https://example.com/priming.jpg")
+                        .uploadDateTime(Instant.now().toString())
+                        .build()))
+                .nextCursor("priming")
+                .build());
+    }
+
+    // the provider refreshes credentials that went stale while the snapshot was stored, do it before a request needs them
+    public void afterRestore() {
+        awsCredentialsProvider.getObject().resolveCredentials();
+    }
+}
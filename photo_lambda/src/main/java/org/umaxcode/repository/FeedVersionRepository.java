@@ -0,0 +1,23 @@
+package org.umaxcode.repository;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Change counters for the photo feeds. Every write that changes what a feed shows bumps the
+ * counter of the photo owner and the counter shared by everybody, so a feed can tell it is
+ * unchanged from one small read instead of reading and signing the whole page again.
+ */
+public interface FeedVersionRepository {
+
+    boolean isEnabled();
+
+    // covers the owner's own photos and recycle bin
+    long getOwnerVersion(String owner);
+
+    // covers every photo, which is what the others-photo feed is made of
+    long getGlobalVersion();
+
+    void recordChange(String owner);
+
+    CompletableFuture<Void> recordChangeAsync(String owner);
+}
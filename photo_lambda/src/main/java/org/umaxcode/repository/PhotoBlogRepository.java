@@ -1,11 +1,14 @@
 package org.umaxcode.repository;
 
 import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.dto.response.PhotoPageDto;
 import org.umaxcode.domain.enums.OwnershipType;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface PhotoBlogRepository {
 
@@ -13,13 +16,27 @@ public interface PhotoBlogRepository {
 
     Map<String, AttributeValue> deleteItem(String id);
 
-    List<GetPhotoDto> getItemsDetails(String email, OwnershipType ownershipType);
+    CompletableFuture<Map<String, AttributeValue>> deleteItemAsync(String id);
+
+    PhotoPageDto getItemsDetails(String email, OwnershipType ownershipType, int limit, String cursor);
+
+    String streamItemsDetails(String email, OwnershipType ownershipType, int limit, String cursor,
+                              Consumer<GetPhotoDto> sink);
 
     Map<String, AttributeValue>  addItemToRecycleBin(String id);
 
-    void updatePreSignedUrlsInDynamo(String id, String imageUrl);
+    CompletableFuture<Map<String, AttributeValue>> addItemToRecycleBinAsync(String id);
+
+    /**
+     * Points the item at {@code objectKey} and, when there are any, replaces its derivative keys.
+     */
+    void updateObjectKey(String id, String objectKey, Map<String, String> derivativeKeys);
+
+    CompletableFuture<Void> updateObjectKeyAsync(String id, String objectKey, Map<String, String> derivativeKeys);
 
     Map<String, AttributeValue> restoreFromRecycleBin(String id);
 
+    CompletableFuture<Map<String, AttributeValue>> restoreFromRecycleBinAsync(String id);
+
     List<GetPhotoDto> getAllItemsInRecycleBin(String email);
 }
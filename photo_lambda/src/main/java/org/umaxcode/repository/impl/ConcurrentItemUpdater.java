@@ -0,0 +1,69 @@
+package org.umaxcode.repository.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends a set of UpdateItem requests with at most {@code parallelism} in flight.
+ * BatchWriteItem only supports puts, which would overwrite whole items, so updates are
+ * fanned out instead. A failing item is reported in the result and never fails the others.
+ */
+@Component
+public class ConcurrentItemUpdater {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    public ConcurrentItemUpdater(DynamoDbClient dynamoDbClient,
+                                 ExecutorService virtualThreadExecutor,
+                                 @Value("${application.aws.writeBackParallelism}") int parallelism) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.executor = virtualThreadExecutor;
+        this.parallelism = parallelism;
+    }
+
+    public BatchUpdateResult updateAll(Map<String, UpdateItemRequest> requestsById) {
+
+        Semaphore inFlight = new Semaphore(parallelism);
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        requestsById.forEach((id, request) -> futures.put(id, executor.submit(() -> {
+            inFlight.acquire();
+            try {
+                return dynamoDbClient.updateItem(request);
+            } finally {
+                inFlight.release();
+            }
+        })));
+
+        List<String> updated = new ArrayList<>();
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        futures.forEach((id, future) -> {
+            try {
+                future.get();
+                updated.add(id);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failures.put(id, ex);
+            } catch (ExecutionException ex) {
+                failures.put(id, ex.getCause());
+            }
+        });
+
+        return new BatchUpdateResult(updated, failures);
+    }
+
+    public record BatchUpdateResult(List<String> updated, Map<String, Throwable> failures) {
+    }
+}
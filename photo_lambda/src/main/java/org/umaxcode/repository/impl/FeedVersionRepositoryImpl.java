@@ -0,0 +1,94 @@
+package org.umaxcode.repository.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.umaxcode.repository.FeedVersionRepository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@Repository
+@RequiredArgsConstructor
+public class FeedVersionRepositoryImpl implements FeedVersionRepository {
+
+    private static final String GLOBAL_SCOPE = "all";
+    private static final String OWNER_SCOPE_PREFIX = "owner#";
+
+    private final DynamoDbClient dynamoDbClient;
+    private final ObjectProvider<DynamoDbAsyncClient> dynamoDbAsyncClientProvider;
+    @Value("${application.aws.feedVersionTableName}")
+    private String feedVersionTableName;
+
+    @Override
+    public boolean isEnabled() {
+        return !feedVersionTableName.isBlank();
+    }
+
+    @Override
+    public long getOwnerVersion(String owner) {
+        return getVersion(OWNER_SCOPE_PREFIX + owner);
+    }
+
+    @Override
+    public long getGlobalVersion() {
+        return getVersion(GLOBAL_SCOPE);
+    }
+
+    private long getVersion(String scope) {
+
+        // strongly consistent, a client refreshing right after its own write must not be told nothing changed
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(feedVersionTableName)
+                .key(Map.of("scope", AttributeValue.builder().s(scope).build()))
+                .consistentRead(true)
+                .build();
+
+        Map<String, AttributeValue> item = dynamoDbClient.getItem(request).item();
+        return item.containsKey("version") ? Long.parseLong(item.get("version").n()) : 0;
+    }
+
+    // the photo write has already happened, a failed bump only keeps stale tags alive until they expire
+    @Override
+    public void recordChange(String owner) {
+        try {
+            dynamoDbClient.updateItem(bumpRequest(OWNER_SCOPE_PREFIX + owner));
+            dynamoDbClient.updateItem(bumpRequest(GLOBAL_SCOPE));
+        } catch (Exception ex) {
+            System.out.println("Could not record feed change for " + owner + ": " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> recordChangeAsync(String owner) {
+        DynamoDbAsyncClient client = dynamoDbAsyncClientProvider.getIfAvailable();
+        if (client == null) {
+            throw new IllegalStateException("Async DynamoDB client is disabled, set application.aws.asyncEnabled");
+        }
+
+        return CompletableFuture.allOf(
+                        client.updateItem(bumpRequest(OWNER_SCOPE_PREFIX + owner)),
+                        client.updateItem(bumpRequest(GLOBAL_SCOPE)))
+                .exceptionally(ex -> {
+                    System.out.println("Could not record feed change for " + owner + ": " + ex.getMessage());
+                    return null;
+                });
+    }
+
+    private UpdateItemRequest bumpRequest(String scope) {
+        return UpdateItemRequest.builder()
+                .tableName(feedVersionTableName)
+                .key(Map.of("scope", AttributeValue.builder().s(scope).build()))
+                .updateExpression("ADD version :one")
+                .expressionAttributeValues(Map.of(
+                        ":one", AttributeValue.builder().n("1").build()
+                ))
+                .build();
+    }
+}
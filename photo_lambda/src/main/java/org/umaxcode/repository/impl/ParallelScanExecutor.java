@@ -0,0 +1,136 @@
+package org.umaxcode.repository.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.umaxcode.exception.PhotoBlogException;
+import org.umaxcode.utils.CursorCodec;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs a filtered scan as {@code Segment}/{@code TotalSegments} slices in parallel and merges
+ * the slices into a single page. The cursor keeps one exclusive start key per unfinished segment.
+ */
+@Component
+@RequiredArgsConstructor
+public class ParallelScanExecutor {
+
+    // upper bound on DynamoDB round trips a single segment spends filling its share of a page
+    private static final int MAX_FETCHES_PER_SEGMENT = 5;
+
+    private final DynamoDbClient dynamoDbClient;
+    private final ExecutorService virtualThreadExecutor;
+    @Value("${application.feed.others.scanSegments}")
+    private int totalSegments;
+    @Value("${application.feed.others.maxConcurrentSegments}")
+    private int maxConcurrentSegments;
+
+    public boolean isEnabled() {
+        return totalSegments > 1;
+    }
+
+    public ScanResult scan(ScanRequest scanRequest, int limit, String cursor) {
+
+        // segments still to be read, keyed by segment number; an empty key means "start of segment"
+        Map<Integer, Map<String, AttributeValue>> segmentKeys = CursorCodec.decodeSegments(cursor, totalSegments);
+        Map<Integer, Integer> shares = shareLimit(limit, segmentKeys.keySet().stream().toList());
+
+        Semaphore inFlight = new Semaphore(maxConcurrentSegments);
+        Map<Integer, Future<SegmentResult>> futures = new TreeMap<>();
+        shares.forEach((segment, share) -> futures.put(segment, virtualThreadExecutor.submit(() -> {
+            inFlight.acquire();
+            try {
+                return scanSegment(scanRequest, segment, share, segmentKeys.get(segment));
+            } finally {
+                inFlight.release();
+            }
+        })));
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<Integer, Map<String, AttributeValue>> nextSegmentKeys = new TreeMap<>(segmentKeys);
+        for (Map.Entry<Integer, Future<SegmentResult>> entry : futures.entrySet()) {
+            SegmentResult result = await(entry.getValue());
+            items.addAll(result.items());
+            if (result.lastEvaluatedKey() == null) {
+                nextSegmentKeys.remove(entry.getKey());
+            } else {
+                nextSegmentKeys.put(entry.getKey(), result.lastEvaluatedKey());
+            }
+        }
+
+        return new ScanResult(items, CursorCodec.encodeSegments(totalSegments, nextSegmentKeys));
+    }
+
+    private SegmentResult scanSegment(ScanRequest scanRequest, int segment, int share,
+                                      Map<String, AttributeValue> startKey) {
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>(share);
+        Map<String, AttributeValue> exclusiveStartKey = startKey.isEmpty() ? null : startKey;
+        int fetches = 0;
+
+        do {
+            ScanResponse response = dynamoDbClient.scan(scanRequest.toBuilder()
+                    .segment(segment)
+                    .totalSegments(totalSegments)
+                    .limit(share - items.size())
+                    .exclusiveStartKey(exclusiveStartKey)
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                    .build());
+
+            items.addAll(response.items());
+            exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+            fetches++;
+        } while (items.size() < share && exclusiveStartKey != null && fetches < MAX_FETCHES_PER_SEGMENT);
+
+        return new SegmentResult(items, exclusiveStartKey);
+    }
+
+    /**
+     * Splits the page size over the unfinished segments so the merged page holds at most
+     * {@code limit} items. Segments left without a share keep their position for the next page.
+     */
+    private Map<Integer, Integer> shareLimit(int limit, List<Integer> segments) {
+
+        Map<Integer, Integer> shares = new TreeMap<>();
+        for (int i = 0; i < segments.size(); i++) {
+            int share = limit / segments.size() + (i < limit % segments.size() ? 1 : 0);
+            if (share > 0) {
+                shares.put(segments.get(i), share);
+            }
+        }
+        return shares;
+    }
+
+    private SegmentResult await(Future<SegmentResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PhotoBlogException("Photo retrieval was interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    public record ScanResult(List<Map<String, AttributeValue>> items, String nextCursor) {
+    }
+
+    private record SegmentResult(List<Map<String, AttributeValue>> items, Map<String, AttributeValue> lastEvaluatedKey) {
+    }
+}
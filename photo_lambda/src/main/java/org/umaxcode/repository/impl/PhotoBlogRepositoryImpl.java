@@ -1,25 +1,45 @@
 package org.umaxcode.repository.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.dto.response.PhotoPageDto;
 import org.umaxcode.domain.enums.OwnershipType;
+import org.umaxcode.domain.mapper.PhotoItemMapper;
 import org.umaxcode.exception.PhotoBlogException;
 import org.umaxcode.repository.PhotoBlogRepository;
+import org.umaxcode.utils.CursorCodec;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class PhotoBlogRepositoryImpl implements PhotoBlogRepository {
 
+    // upper bound on DynamoDB round trips spent filling a single page
+    private static final int MAX_FETCHES_PER_PAGE = 5;
+    // keeps each DynamoDB page small when a caller streams an unbounded feed
+    private static final int MAX_ITEMS_PER_FETCH = 100;
+    private static final String DELETE_CONDITION_MESSAGE = "Photo in recycling bin can only be permanently deleted";
+    private static final String RECYCLE_CONDITION_MESSAGE = "Photo is already added to recycle bin";
+    private static final String RESTORE_CONDITION_MESSAGE = "Photo has already been restored";
+
     private final DynamoDbClient dynamoDbClient;
+    private final ParallelScanExecutor parallelScanExecutor;
+    private final PhotoItemMapper photoItemMapper;
+    private final ObjectProvider<DynamoDbAsyncClient> dynamoDbAsyncClientProvider;
     @Value("${application.aws.tableName}")
     private String tableName;
 
@@ -38,30 +58,78 @@ public class PhotoBlogRepositoryImpl implements PhotoBlogRepository {
     }
 
     @Override
-    public List<GetPhotoDto> getItemsDetails(String email, OwnershipType ownershipType) {
+    public PhotoPageDto getItemsDetails(String email, OwnershipType ownershipType, int limit, String cursor) {
+
+        if (OwnershipType.OTHERS_PHOTO.equals(ownershipType) && parallelScanExecutor.isEnabled()) {
+            ParallelScanExecutor.ScanResult result = parallelScanExecutor.scan(othersScanRequest(email), limit, cursor);
+            return PhotoPageDto.builder()
+                    .photos(result.items().stream().map(photoItemMapper::toPhotoDto).toList())
+                    .nextCursor(result.nextCursor())
+                    .build();
+        }
+
+        List<GetPhotoDto> photos = new ArrayList<>(limit);
+        String nextCursor = readItems(email, ownershipType, limit, cursor, MAX_FETCHES_PER_PAGE, photos::add);
+        return PhotoPageDto.builder()
+                .photos(photos)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Override
+    public String streamItemsDetails(String email, OwnershipType ownershipType, int limit, String cursor,
+                                     Consumer<GetPhotoDto> sink) {
+
+        // segments finish out of order, so streaming always reads sequentially to keep a single cursor
+        return readItems(email, ownershipType, limit, cursor, MAX_FETCHES_PER_PAGE, sink);
+    }
+
+    private String readItems(String email, OwnershipType ownershipType, int limit, String cursor, int maxFetches,
+                             Consumer<GetPhotoDto> sink) {
+
+        Map<String, AttributeValue> startKey = CursorCodec.decode(cursor);
 
         if (OwnershipType.OWN_PHOTO.equals(ownershipType)) {
-            return getByOwner(email).stream()
-                    .map(photo -> GetPhotoDto.builder()
-                            .imgId(photo.get("picId").s())
-                            .image(photo.get("picUrl").s())
-                            .uploadDateTime(photo.get("dateOfUpload").s())
-                            .resignUrlGenDateTime(photo.get("preSignedUrlGenDate").s())
-                            .build())
-                    .toList();
+            // the index key is part of the cursor, reject cursors issued for another owner
+            if (startKey != null && !AttributeValue.builder().s(email).build().equals(startKey.get("owner"))) {
+                throw new PhotoBlogException("Invalid cursor");
+            }
+            return readPages(limit, startKey, maxFetches, sink,
+                    (pageLimit, exclusiveStartKey) -> getByOwner(email, pageLimit, exclusiveStartKey));
         }
 
-        return getByOthers(email).stream()
-                .map(photo -> GetPhotoDto.builder()
-                        .imgId(photo.get("picId").s())
-                        .image(photo.get("picUrl").s())
-                        .uploadDateTime(photo.get("dateOfUpload").s())
-                        .resignUrlGenDateTime(photo.get("preSignedUrlGenDate").s())
-                        .build())
-                .toList();
+        return readPages(limit, startKey, maxFetches, sink,
+                (pageLimit, exclusiveStartKey) -> getByOthers(email, pageLimit, exclusiveStartKey));
+    }
+
+    /**
+     * Reads pages until {@code limit} matching items are handed to the sink or the result set is
+     * exhausted. Every request asks DynamoDB for at most the remaining number of items, so the
+     * returned cursor never skips an item that matched the filter. Only the current page is held
+     * in memory.
+     */
+    private String readPages(int limit, Map<String, AttributeValue> startKey, int maxFetches,
+                             Consumer<GetPhotoDto> sink,
+                             BiFunction<Integer, Map<String, AttributeValue>, ItemPage> fetch) {
+
+        Map<String, AttributeValue> exclusiveStartKey = startKey;
+        int read = 0;
+        int fetches = 0;
+
+        do {
+            ItemPage page = fetch.apply(Math.min(limit - read, MAX_ITEMS_PER_FETCH), exclusiveStartKey);
+            for (Map<String, AttributeValue> item : page.items()) {
+                sink.accept(photoItemMapper.toPhotoDto(item));
+            }
+            read += page.items().size();
+            exclusiveStartKey = page.lastEvaluatedKey();
+            fetches++;
+        } while (read < limit && exclusiveStartKey != null && fetches < maxFetches);
+
+        return CursorCodec.encode(exclusiveStartKey);
     }
 
-    private List<Map<String, AttributeValue>> getByOwner(String email) {
+    private ItemPage getByOwner(String email, int limit, Map<String, AttributeValue> exclusiveStartKey) {
         QueryRequest queryRequest = QueryRequest.builder()
                 .tableName(tableName)
                 .indexName("ownerIndex")
@@ -74,13 +142,26 @@ public class PhotoBlogRepositoryImpl implements PhotoBlogRepository {
                 .expressionAttributeNames(Map.of(
                         "#owner", "owner"
                 ))
+                .limit(limit)
+                .exclusiveStartKey(exclusiveStartKey)
                 .build();
 
-        return dynamoDbClient.query(queryRequest).items();
+        QueryResponse response = dynamoDbClient.query(queryRequest);
+        return new ItemPage(response.items(), response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null);
     }
 
-    private List<Map<String, AttributeValue>> getByOthers(String email) {
-        ScanRequest scanRequest = ScanRequest.builder()
+    private ItemPage getByOthers(String email, int limit, Map<String, AttributeValue> exclusiveStartKey) {
+        ScanRequest scanRequest = othersScanRequest(email).toBuilder()
+                .limit(limit)
+                .exclusiveStartKey(exclusiveStartKey)
+                .build();
+
+        ScanResponse response = dynamoDbClient.scan(scanRequest);
+        return new ItemPage(response.items(), response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null);
+    }
+
+    private ScanRequest othersScanRequest(String email) {
+        return ScanRequest.builder()
                 .tableName(tableName)
                 .filterExpression("#owner <> :email AND isPlacedInRecycleBin = :false")
                 .expressionAttributeValues(Map.of(
@@ -91,136 +172,184 @@ public class PhotoBlogRepositoryImpl implements PhotoBlogRepository {
                         "#owner", "owner"
                 ))
                 .build();
+    }
 
-        return dynamoDbClient.scan(scanRequest).items();
+    private record ItemPage(List<Map<String, AttributeValue>> items, Map<String, AttributeValue> lastEvaluatedKey) {
     }
 
     @Override
     public Map<String, AttributeValue> deleteItem(String id) {
 
         try {
-            Map<String, AttributeValue> key = new HashMap<>();
-            key.put("picId", AttributeValue.builder().s(id).build());
-
-            DeleteItemRequest deleteRequest = DeleteItemRequest.builder()
-                    .tableName(tableName)
-                    .key(key)
-                    .conditionExpression("isPlacedInRecycleBin = :true")
-                    .expressionAttributeValues(Map.of(
-                            ":true", AttributeValue.builder().n("1").build()
-                    ))
-                    .returnValues("ALL_OLD")
-                    .build();
-
-            DeleteItemResponse deleteResponse = dynamoDbClient.deleteItem(deleteRequest);
-
-            return deleteResponse.attributes();
+            return dynamoDbClient.deleteItem(deleteItemRequest(id)).attributes();
         } catch (ConditionalCheckFailedException ex) {
-            throw new PhotoBlogException("Photo in recycling bin can only be permanently deleted");
+            throw new PhotoBlogException(DELETE_CONDITION_MESSAGE);
         }
     }
 
     @Override
-    public Map<String, AttributeValue> addItemToRecycleBin(String id) {
+    public CompletableFuture<Map<String, AttributeValue>> deleteItemAsync(String id) {
+        return onConditionFailure(dynamoDbAsyncClient().deleteItem(deleteItemRequest(id)), DELETE_CONDITION_MESSAGE)
+                .thenApply(DeleteItemResponse::attributes);
+    }
 
-        try {
-            Map<String, AttributeValue> key = Map.of(
-                    "picId", AttributeValue.builder().s(id).build()
-            );
-
-            UpdateItemRequest updateItemRequest = UpdateItemRequest.builder()
-                    .tableName(tableName)
-                    .key(key)
-                    .updateExpression("SET isPlacedInRecycleBin = :true")
-                    .conditionExpression("isPlacedInRecycleBin = :false")
-                    .expressionAttributeValues(Map.of(
-                            ":true", AttributeValue.builder().n("1").build(),
-                            ":false", AttributeValue.builder().n("0").build()
-                    ))
-                    .returnValues("ALL_NEW")
-                    .build();
+    private DeleteItemRequest deleteItemRequest(String id) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("picId", AttributeValue.builder().s(id).build());
 
+        return DeleteItemRequest.builder()
+                .tableName(tableName)
+                .key(key)
+                .conditionExpression("isPlacedInRecycleBin = :true")
+                .expressionAttributeValues(Map.of(
+                        ":true", AttributeValue.builder().n("1").build()
+                ))
+                .returnValues("ALL_OLD")
+                .build();
+    }
+
+    @Override
+    public Map<String, AttributeValue> addItemToRecycleBin(String id) {
 
-            UpdateItemResponse updateItemResponse = dynamoDbClient.updateItem(updateItemRequest);
-            return updateItemResponse.attributes();
+        try {
+            return dynamoDbClient.updateItem(addToRecycleBinRequest(id)).attributes();
         } catch (ConditionalCheckFailedException ex) {
-            throw new PhotoBlogException("Photo is already added to recycle bin");
+            throw new PhotoBlogException(RECYCLE_CONDITION_MESSAGE);
         }
+    }
 
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> addItemToRecycleBinAsync(String id) {
+        return onConditionFailure(dynamoDbAsyncClient().updateItem(addToRecycleBinRequest(id)), RECYCLE_CONDITION_MESSAGE)
+                .thenApply(UpdateItemResponse::attributes);
+    }
+
+    private UpdateItemRequest addToRecycleBinRequest(String id) {
+        Map<String, AttributeValue> key = Map.of(
+                "picId", AttributeValue.builder().s(id).build()
+        );
+
+        return UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(key)
+                // recycledOwner only exists while the photo is in the bin, which keeps recycleBinIndex sparse
+                .updateExpression("SET isPlacedInRecycleBin = :true, recycledOwner = #owner")
+                .conditionExpression("isPlacedInRecycleBin = :false")
+                .expressionAttributeValues(Map.of(
+                        ":true", AttributeValue.builder().n("1").build(),
+                        ":false", AttributeValue.builder().n("0").build()
+                ))
+                .expressionAttributeNames(Map.of(
+                        "#owner", "owner"
+                ))
+                .returnValues("ALL_NEW")
+                .build();
     }
 
     @Override
     public Map<String, AttributeValue> restoreFromRecycleBin(String id) {
         try {
-            Map<String, AttributeValue> key = Map.of(
-                    "picId", AttributeValue.builder().s(id).build()
-            );
-
-            UpdateItemRequest updateItemRequest = UpdateItemRequest.builder()
-                    .tableName(tableName)
-                    .key(key)
-                    .updateExpression("SET isPlacedInRecycleBin = :false")
-                    .conditionExpression("isPlacedInRecycleBin = :true")
-                    .expressionAttributeValues(Map.of(
-                            ":false", AttributeValue.builder().n("0").build(),
-                            ":true", AttributeValue.builder().n("1").build()
-                    ))
-                    .returnValues("ALL_NEW")
-                    .build();
-
-            UpdateItemResponse updateItemResponse = dynamoDbClient.updateItem(updateItemRequest);
-            return updateItemResponse.attributes();
+            return dynamoDbClient.updateItem(restoreFromRecycleBinRequest(id)).attributes();
         } catch (ConditionalCheckFailedException ex) {
-            throw new PhotoBlogException("Photo has already been restored");
+            throw new PhotoBlogException(RESTORE_CONDITION_MESSAGE);
         }
     }
 
     @Override
-    public List<GetPhotoDto> getAllItemsInRecycleBin(String email) {
+    public CompletableFuture<Map<String, AttributeValue>> restoreFromRecycleBinAsync(String id) {
+        return onConditionFailure(dynamoDbAsyncClient().updateItem(restoreFromRecycleBinRequest(id)), RESTORE_CONDITION_MESSAGE)
+                .thenApply(UpdateItemResponse::attributes);
+    }
+
+    private UpdateItemRequest restoreFromRecycleBinRequest(String id) {
+        Map<String, AttributeValue> key = Map.of(
+                "picId", AttributeValue.builder().s(id).build()
+        );
 
-        ScanRequest scanRequest = ScanRequest.builder()
+        return UpdateItemRequest.builder()
                 .tableName(tableName)
-                .filterExpression("#owner = :email AND isPlacedInRecycleBin = :true")
+                .key(key)
+                .updateExpression("SET isPlacedInRecycleBin = :false REMOVE recycledOwner")
+                .conditionExpression("isPlacedInRecycleBin = :true")
                 .expressionAttributeValues(Map.of(
-                        ":email", AttributeValue.builder().s(email).build(),
+                        ":false", AttributeValue.builder().n("0").build(),
                         ":true", AttributeValue.builder().n("1").build()
                 ))
-                .expressionAttributeNames(Map.of(
-                        "#owner", "owner"
-                ))
+                .returnValues("ALL_NEW")
                 .build();
+    }
 
-        List<Map<String, AttributeValue>> items = dynamoDbClient.scan(scanRequest).items();
+    @Override
+    public List<GetPhotoDto> getAllItemsInRecycleBin(String email) {
 
-        return items.stream()
-                .map(photo -> GetPhotoDto.builder()
-                        .imgId(photo.get("picId").s())
-                        .image(photo.get("picUrl").s())
-                        .uploadDateTime(photo.get("dateOfUpload").s())
-                        .build())
+        QueryRequest queryRequest = QueryRequest.builder()
+                .tableName(tableName)
+                .indexName("recycleBinIndex")
+                .keyConditionExpression("recycledOwner = :email")
+                .expressionAttributeValues(Map.of(
+                        ":email", AttributeValue.builder().s(email).build()
+                ))
+                .build();
+
+        return dynamoDbClient.queryPaginator(queryRequest).items().stream()
+                .map(photoItemMapper::toPhotoDto)
                 .toList();
     }
 
     @Override
-    public void updatePreSignedUrlsInDynamo(String id, String imageUrl) {
+    public void updateObjectKey(String id, String objectKey, Map<String, String> derivativeKeys) {
         try {
-            Map<String, AttributeValue> key = Map.of(
-                    "picId", AttributeValue.builder().s(id).build()
-            );
-
-            UpdateItemRequest updateItemRequest = UpdateItemRequest.builder()
-                    .tableName(tableName)
-                    .key(key)
-                    .updateExpression("SET picUrl = :preSignedUrl, preSignedUrlGenDate = :signedDate")
-                    .expressionAttributeValues(Map.of(
-                            ":preSignedUrl", AttributeValue.builder().s(imageUrl).build(),
-                            ":signedDate", AttributeValue.builder().s(LocalDateTime.now().toString()).build()
-                    ))
-                    .build();
-
-            dynamoDbClient.updateItem(updateItemRequest);
+            dynamoDbClient.updateItem(updateObjectKeyRequest(id, objectKey, derivativeKeys));
         } catch (Exception ex) {
             throw new PhotoBlogException(ex.getMessage());
         }
     }
+
+    @Override
+    public CompletableFuture<Void> updateObjectKeyAsync(String id, String objectKey, Map<String, String> derivativeKeys) {
+        return dynamoDbAsyncClient().updateItem(updateObjectKeyRequest(id, objectKey, derivativeKeys))
+                .thenApply(response -> null);
+    }
+
+    private UpdateItemRequest updateObjectKeyRequest(String id, String objectKey, Map<String, String> derivativeKeys) {
+        Map<String, AttributeValue> key = Map.of(
+                "picId", AttributeValue.builder().s(id).build()
+        );
+
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":objectKey", AttributeValue.builder().s(objectKey).build());
+        String set = "SET objectKey = :objectKey";
+        if (!derivativeKeys.isEmpty()) {
+            Map<String, AttributeValue> derivatives = new HashMap<>();
+            derivativeKeys.forEach((name, derivativeKey) -> derivatives.put(name, AttributeValue.builder().s(derivativeKey).build()));
+            values.put(":derivatives", AttributeValue.builder().m(derivatives).build());
+            set += ", derivatives = :derivatives";
+        }
+
+        // legacy url attributes are dropped as soon as an item is written in the new format
+        return UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(key)
+                .updateExpression(set + " REMOVE picUrl, preSignedUrlGenDate")
+                .expressionAttributeValues(values)
+                .build();
+    }
+
+    private DynamoDbAsyncClient dynamoDbAsyncClient() {
+        DynamoDbAsyncClient client = dynamoDbAsyncClientProvider.getIfAvailable();
+        if (client == null) {
+            throw new IllegalStateException("Async DynamoDB client is disabled, set application.aws.asyncEnabled");
+        }
+        return client;
+    }
+
+    // the async client reports a failed condition inside a CompletionException instead of throwing it
+    private static <T> CompletableFuture<T> onConditionFailure(CompletableFuture<T> future, String message) {
+        return future.exceptionallyCompose(ex -> {
+            Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+            return CompletableFuture.failedFuture(cause instanceof ConditionalCheckFailedException
+                    ? new PhotoBlogException(message)
+                    : cause);
+        });
+    }
 }
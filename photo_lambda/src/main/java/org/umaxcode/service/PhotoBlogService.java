@@ -2,24 +2,46 @@ package org.umaxcode.service;
 
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.multipart.MultipartFile;
+import org.umaxcode.domain.dto.request.PhotoUploadUrlRequest;
 import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.dto.response.PhotoPageDto;
 import org.umaxcode.domain.dto.response.PhotoUploadDTo;
+import org.umaxcode.domain.dto.response.PhotoUploadUrlDto;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface PhotoBlogService {
 
     String upload(MultipartFile pic, Jwt jwt);
 
+    PhotoUploadUrlDto generateUploadUrl(PhotoUploadUrlRequest request, Jwt jwt);
+
     PhotoUploadDTo generatePreSignedUrl(String id, Jwt jwt);
 
-    List<GetPhotoDto> getImages(String ownership, Jwt jwt);
+    PhotoPageDto getImages(String ownership, Integer limit, String cursor, Jwt jwt);
+
+    /**
+     * A weak ETag for the page {@link #getImages} would return, or {@code null} when feed versions are off.
+     */
+    String getImagesVersionTag(String ownership, Integer limit, String cursor, Jwt jwt);
+
+    String streamImages(String ownership, Integer limit, String cursor, Jwt jwt, Consumer<GetPhotoDto> sink);
 
     void deleteImage(String id, Jwt jwt);
 
+    CompletableFuture<Void> deleteImageAsync(String id, Jwt jwt);
+
     GetPhotoDto moveToRecycleBin(String id, Jwt jwt);
 
+    CompletableFuture<GetPhotoDto> moveToRecycleBinAsync(String id, Jwt jwt);
+
     GetPhotoDto restoreFromRecycleBin(String id, Jwt jwt);
 
+    CompletableFuture<GetPhotoDto> restoreFromRecycleBinAsync(String id, Jwt jwt);
+
     List<GetPhotoDto> retrieveAllImagesInRecyclingBin(Jwt jwt);
+
+    String recycleBinVersionTag(Jwt jwt);
 }
@@ -2,10 +2,13 @@ package org.umaxcode.service;
 
 import org.springframework.web.multipart.MultipartFile;
 import org.umaxcode.domain.dto.response.GetPhotoDto;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
 import java.net.URL;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface S3Service {
 
@@ -13,9 +16,16 @@ public interface S3Service {
 
     URL generatePreSignedUrl(String objectKey, int expirationInHours);
 
+    PresignedPutObjectRequest presignUpload(String objectKey, String contentType, long contentLength,
+                                            Map<String, String> metadata, Duration expiration);
+
 //    List<GetPhotoDto> getObjects(List<Map<String, String>> objectKeys);
 
     void deleteObject(String objectKey);
 
-    void moveObject(String sourceObjectKey, String destinationObjectKey);
+    CompletableFuture<Void> deleteObjectAsync(String objectKey);
+
+    void copyObject(String sourceObjectKey, String destinationObjectKey);
+
+    CompletableFuture<Void> copyObjectAsync(String sourceObjectKey, String destinationObjectKey);
 }
@@ -0,0 +1,156 @@
+package org.umaxcode.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Uploads a stream as an S3 multipart upload. Parts are read one after the other and sent in
+ * parallel, with at most {@code parallelism} part buffers alive at a time, so heap use is
+ * {@code partSize * parallelism} whatever the object size. Any failure aborts the upload so no
+ * orphaned parts are left behind.
+ */
+@Component
+public class MultipartUploader {
+
+    private final S3Client s3Client;
+    private final ExecutorService executor;
+    private final int partSize;
+    private final int parallelism;
+
+    public MultipartUploader(S3Client s3Client,
+                             ExecutorService virtualThreadExecutor,
+                             @Value("${application.upload.partSize}") DataSize partSize,
+                             @Value("${application.upload.partParallelism}") int parallelism) {
+        this.s3Client = s3Client;
+        this.executor = virtualThreadExecutor;
+        this.partSize = Math.toIntExact(partSize.toBytes());
+        this.parallelism = parallelism;
+    }
+
+    public void upload(PutObjectRequest putRequest, InputStream in) throws IOException {
+
+        CreateMultipartUploadRequest createRequest = CreateMultipartUploadRequest.builder()
+                .bucket(putRequest.bucket())
+                .key(putRequest.key())
+                .contentType(putRequest.contentType())
+                .metadata(putRequest.metadata())
+                .build();
+        String uploadId = s3Client.createMultipartUpload(createRequest).uploadId();
+
+        try {
+            List<CompletedPart> parts = uploadParts(putRequest, uploadId, in);
+
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(putRequest.bucket())
+                    .key(putRequest.key())
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (IOException | RuntimeException ex) {
+            abort(putRequest, uploadId);
+            throw ex;
+        }
+    }
+
+    private List<CompletedPart> uploadParts(PutObjectRequest putRequest, String uploadId, InputStream in)
+            throws IOException {
+
+        Semaphore buffers = new Semaphore(parallelism);
+        List<Future<CompletedPart>> futures = new ArrayList<>();
+
+        try {
+            for (int partNumber = 1; ; partNumber++) {
+                buffers.acquire();
+                byte[] buffer = new byte[partSize];
+                int read = in.readNBytes(buffer, 0, partSize);
+                if (read == 0 && partNumber > 1) {
+                    buffers.release();
+                    break;
+                }
+
+                int number = partNumber;
+                futures.add(executor.submit(() -> {
+                    try {
+                        return uploadPart(putRequest, uploadId, number, buffer, read);
+                    } finally {
+                        buffers.release();
+                    }
+                }));
+
+                if (read < partSize) {
+                    break;
+                }
+            }
+
+            List<CompletedPart> parts = new ArrayList<>(futures.size());
+            for (Future<CompletedPart> future : futures) {
+                parts.add(future.get());
+            }
+            return parts;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IOException("Multipart upload interrupted", ex);
+        } catch (ExecutionException ex) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IOException("Multipart upload part failed", ex.getCause());
+        } catch (IOException ex) {
+            futures.forEach(future -> future.cancel(true));
+            throw ex;
+        }
+    }
+
+    private CompletedPart uploadPart(PutObjectRequest putRequest, String uploadId, int partNumber,
+                                     byte[] buffer, int length) {
+
+        UploadPartRequest partRequest = UploadPartRequest.builder()
+                .bucket(putRequest.bucket())
+                .key(putRequest.key())
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) length)
+                .build();
+
+        // wrapping the buffer in a stream avoids the copy RequestBody.fromBytes makes
+        String eTag = s3Client.uploadPart(partRequest,
+                RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length)).eTag();
+
+        return CompletedPart.builder()
+                .partNumber(partNumber)
+                .eTag(eTag)
+                .build();
+    }
+
+    private void abort(PutObjectRequest putRequest, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(putRequest.bucket())
+                    .key(putRequest.key())
+                    .uploadId(uploadId)
+                    .build());
+        } catch (RuntimeException ex) {
+            // the bucket lifecycle rule cleans up whatever is left
+            System.out.printf("Failed to abort multipart upload %s: %s%n", uploadId, ex.getMessage());
+        }
+    }
+}
@@ -1,26 +1,40 @@
 package org.umaxcode.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import org.umaxcode.domain.dto.request.PhotoUploadUrlRequest;
 import org.umaxcode.domain.dto.response.GetPhotoDto;
+import org.umaxcode.domain.dto.response.PhotoPageDto;
 import org.umaxcode.domain.dto.response.PhotoUploadDTo;
+import org.umaxcode.domain.dto.response.PhotoUploadUrlDto;
 import org.umaxcode.domain.enums.OwnershipType;
+import org.umaxcode.domain.mapper.PhotoItemMapper;
 import org.umaxcode.exception.PhotoBlogException;
+import org.umaxcode.repository.FeedVersionRepository;
 import org.umaxcode.repository.PhotoBlogRepository;
 import org.umaxcode.service.PhotoBlogService;
 import org.umaxcode.service.S3Service;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeParseException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 @Service
 @RequiredArgsConstructor
@@ -28,7 +42,26 @@ public class PhotoBlogServiceImpl implements PhotoBlogService {
 
     private final PhotoBlogRepository photoBlogRepository;
     private final S3Service s3Service;
+    private final PhotoItemMapper photoItemMapper;
+    private final FeedVersionRepository feedVersionRepository;
     private final String RECYCLE_BIN_PATH = "recycled/";
+    private static final Map<String, String> UPLOAD_EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/png", "png",
+            "image/gif", "gif"
+    );
+    @Value("${application.upload.maxFileSize}")
+    private DataSize maxUploadSize;
+    @Value("${application.upload.urlExpiration}")
+    private Duration uploadUrlExpiration;
+    @Value("${application.feed.defaultPageSize}")
+    private int defaultPageSize;
+    @Value("${application.feed.maxPageSize}")
+    private int maxPageSize;
+    @Value("${application.feed.versionTagMaxAge}")
+    private Duration versionTagMaxAge;
+    @Value("${application.aws.region}")
+    private String region;
 
 
     @Override
@@ -49,6 +82,46 @@ public class PhotoBlogServiceImpl implements PhotoBlogService {
                 lastName);
     }
 
+    @Override
+    public PhotoUploadUrlDto generateUploadUrl(PhotoUploadUrlRequest request, Jwt jwt) {
+
+        String extension = request.contentType() == null ? null : UPLOAD_EXTENSIONS.get(request.contentType());
+        if (extension == null) {
+            throw new PhotoBlogException("Invalid file type. Only JPEG, PNG, and GIF are allowed.");
+        }
+
+        if (request.contentLength() == null || request.contentLength() < 1
+                || request.contentLength() > maxUploadSize.toBytes()) {
+            throw new PhotoBlogException("Picture size must be between 1 byte and " + maxUploadSize);
+        }
+
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("email", jwt.getClaimAsString("email"));
+        metadata.put("firstName", jwt.getClaimAsString("given_name"));
+        metadata.put("lastName", jwt.getClaimAsString("family_name"));
+
+        // a fresh key per upload, so two uploads of the same file name never overwrite each other in staging
+        String objectKey = UUID.randomUUID() + "." + extension;
+        PresignedPutObjectRequest presigned = s3Service.presignUpload(objectKey, request.contentType(),
+                request.contentLength(), metadata, uploadUrlExpiration);
+
+        // the browser sets host itself, every other signed header has to be sent as-is
+        Map<String, String> headers = new HashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            if (!"host".equalsIgnoreCase(name)) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+
+        return PhotoUploadUrlDto.builder()
+                .uploadUrl(presigned.url().toString())
+                .method(presigned.httpRequest().method().name())
+                .headers(headers)
+                .objectKey(objectKey)
+                .expiresAt(presigned.expiration().toString())
+                .build();
+    }
+
     @Override
     public PhotoUploadDTo generatePreSignedUrl(String id, Jwt jwt) {
 
@@ -65,8 +138,7 @@ public class PhotoBlogServiceImpl implements PhotoBlogService {
                 throw new PhotoBlogException("Unauthorized operation on this image");
             }
 
-            String objectURL = item.get("picUrl").s();
-            URL url = s3Service.generatePreSignedUrl(extractObjectKey(objectURL), 3);
+            URL url = s3Service.generatePreSignedUrl(photoItemMapper.objectKey(item), 3);
 
             return PhotoUploadDTo.builder()
                     .picUrl(url.toString())
@@ -77,66 +149,84 @@ public class PhotoBlogServiceImpl implements PhotoBlogService {
     }
 
     @Override
-    public List<GetPhotoDto> getImages(String ownership, Jwt jwt) {
+    public PhotoPageDto getImages(String ownership, Integer limit, String cursor, Jwt jwt) {
         OwnershipType type = OwnershipType.fromString(ownership);
         String email = jwt.getClaimAsString("email");
-        List<GetPhotoDto> photoDetails = photoBlogRepository.getItemsDetails(email, type);
-        return checkAndRefreshPreSignedUrl(photoDetails);
+
+        int pageSize = limit == null ? defaultPageSize : limit;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            throw new PhotoBlogException("Limit must be between 1 and " + maxPageSize);
+        }
+
+        PhotoPageDto page = photoBlogRepository.getItemsDetails(email, type, pageSize, cursor);
+        return PhotoPageDto.builder()
+                .photos(withPreSignedUrls(page.photos()))
+                .nextCursor(page.nextCursor())
+                .build();
     }
 
-    private List<GetPhotoDto> checkAndRefreshPreSignedUrl(List<GetPhotoDto> photoDetails) {
+    @Override
+    public String getImagesVersionTag(String ownership, Integer limit, String cursor, Jwt jwt) {
+        if (!feedVersionRepository.isEnabled()) {
+            return null;
+        }
 
-        if (photoDetails.isEmpty()) {
-            return List.of();
+        OwnershipType type = OwnershipType.fromString(ownership);
+        String email = jwt.getClaimAsString("email");
+        long version = OwnershipType.OWN_PHOTO.equals(type)
+                ? feedVersionRepository.getOwnerVersion(email)
+                : feedVersionRepository.getGlobalVersion();
+        return versionTag(type.name(), email, limit, cursor, version);
+    }
+
+    @Override
+    public String streamImages(String ownership, Integer limit, String cursor, Jwt jwt, Consumer<GetPhotoDto> sink) {
+        OwnershipType type = OwnershipType.fromString(ownership);
+        String email = jwt.getClaimAsString("email");
+
+        // the container handler holds the whole body until the proxy response is returned, so a
+        // streamed page is capped like any other and the rest of the feed is behind the cursor
+        int pageSize = limit == null ? defaultPageSize : limit;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            throw new PhotoBlogException("Limit must be between 1 and " + maxPageSize);
         }
 
-        // Check if any preSigned URLs need regeneration (24 hours old)
-        LocalDateTime twentyFourHoursAgo = LocalDateTime.now().minusHours(24);
-        List<GetPhotoDto> updatedDetails = new ArrayList<>();
+        return photoBlogRepository.streamItemsDetails(email, type, pageSize, cursor,
+                photo -> sink.accept(withPreSignedUrl(photo)));
+    }
+
+    // the page holds pre-signed urls, so a tag is only good for one max-age window even when nothing changed.
+    // versions are counted per region, the region keeps a failover from matching tags issued before it
+    private String versionTag(Object... viewParts) {
+        long window = Instant.now().getEpochSecond() / versionTagMaxAge.toSeconds();
+        StringBuilder view = new StringBuilder(region).append('|').append(window);
+        for (Object part : viewParts) {
+            view.append('|').append(part);
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(view.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private List<GetPhotoDto> withPreSignedUrls(List<GetPhotoDto> photoDetails) {
+
+        List<GetPhotoDto> signedDetails = new ArrayList<>(photoDetails.size());
 
         for (GetPhotoDto photo : photoDetails) {
-            // Check if URL generation time is older than 24 hours
-            // Parse the date string from DynamoDB
-            LocalDateTime preSignedUrlGenDate = parseDateTime(photo.getResignUrlGenDateTime());
-
-            if (preSignedUrlGenDate == null || preSignedUrlGenDate.isBefore(twentyFourHoursAgo)) {
-                // URL has expired or is close to expiry, mark for regeneration
-                String url = s3Service.generatePreSignedUrl(extractObjectKey(photo.getImage()), 24).toString();
-
-                updatedDetails.add(GetPhotoDto.builder()
-                        .imgId(photo.getImgId())
-                        .image(url)
-                        .uploadDateTime(photo.getUploadDateTime())
-                        .build()
-                );
-
-                photoBlogRepository.updatePreSignedUrlsInDynamo(photo.getImgId(), url);
-
-            } else {
-                updatedDetails.add(GetPhotoDto.builder()
-                        .imgId(photo.getImgId())
-                        .image(photo.getImage())
-                        .uploadDateTime(photo.getUploadDateTime())
-                        .build()
-                );
-            }
+            signedDetails.add(withPreSignedUrl(photo));
         }
 
-        return updatedDetails;
+        return signedDetails;
     }
 
-    private LocalDateTime parseDateTime(String dateTime) {
-        LocalDateTime urlGenerationTime = null;
-        if (dateTime != null && !dateTime.isEmpty()) {
-            try {
-                urlGenerationTime = LocalDateTime.parse(dateTime);
-            } catch (DateTimeParseException e) {
-                System.err.println("Failed to parse datetime: " + dateTime);
-                // Continue with null datetime which will trigger regeneration
-            }
-        }
+    // urls are signed on every read and never written back, the signer cache keeps hot photos cheap
+    private GetPhotoDto withPreSignedUrl(GetPhotoDto photo) {
+
+        String url = s3Service.generatePreSignedUrl(photo.getObjectKey(), 24).toString();
 
-        return urlGenerationTime;
+        return GetPhotoDto.builder()
+                .imgId(photo.getImgId())
+                .image(url)
+                .uploadDateTime(photo.getUploadDateTime())
+                .build();
     }
 
     @Override
@@ -144,25 +234,37 @@ public class PhotoBlogServiceImpl implements PhotoBlogService {
         String email = jwt.getClaimAsString("email");
         Map<String, AttributeValue> deleteResponse = photoBlogRepository.deleteItem(id);
         if (!deleteResponse.isEmpty()) {
-            String objectURL = deleteResponse.get("picUrl").s();
-            s3Service.deleteObject(extractObjectKey(objectURL));
+            s3Service.deleteObject(photoItemMapper.objectKey(deleteResponse));
+            photoItemMapper.derivativeKeys(deleteResponse).forEach(s3Service::deleteObject);
+            feedVersionRepository.recordChange(deleteResponse.get("owner").s());
             return;
         }
 
         throw new PhotoBlogException("Image with id = " + id + " does not exist.");
     }
 
+    @Override
+    public CompletableFuture<Void> deleteImageAsync(String id, Jwt jwt) {
+        return photoBlogRepository.deleteItemAsync(id)
+                .thenCompose(deleteResponse -> {
+                    if (deleteResponse.isEmpty()) {
+                        throw new PhotoBlogException("Image with id = " + id + " does not exist.");
+                    }
+                    List<CompletableFuture<Void>> deletions = new ArrayList<>();
+                    deletions.add(s3Service.deleteObjectAsync(photoItemMapper.objectKey(deleteResponse)));
+                    photoItemMapper.derivativeKeys(deleteResponse)
+                            .forEach(key -> deletions.add(s3Service.deleteObjectAsync(key)));
+                    deletions.add(feedVersionRepository.recordChangeAsync(deleteResponse.get("owner").s()));
+                    return CompletableFuture.allOf(deletions.toArray(CompletableFuture[]::new));
+                });
+    }
+
     @Override
     public GetPhotoDto moveToRecycleBin(String id, Jwt jwt) {
         String email = jwt.getClaimAsString("email");
         Map<String, AttributeValue> returnedAttribute = photoBlogRepository.addItemToRecycleBin(id);
-        String objectKey = extractObjectKey(returnedAttribute.get("picUrl").s());
-
-        s3Service.moveObject(objectKey, RECYCLE_BIN_PATH + email + "/" + objectKey);
-        ;
-        String url = s3Service.generatePreSignedUrl(RECYCLE_BIN_PATH + email + "/" + objectKey,
-                24).toString();
-        photoBlogRepository.updatePreSignedUrlsInDynamo(id, url);
+        relocate(id, returnedAttribute, objectKey -> recycledKey(email, objectKey));
+        feedVersionRepository.recordChange(returnedAttribute.get("owner").s());
 
         return GetPhotoDto.builder()
                 .imgId(returnedAttribute.get("picId").s())
@@ -170,42 +272,99 @@ public class PhotoBlogServiceImpl implements PhotoBlogService {
     }
 
     @Override
-    public GetPhotoDto restoreFromRecycleBin(String id, Jwt jwt) {
+    public CompletableFuture<GetPhotoDto> moveToRecycleBinAsync(String id, Jwt jwt) {
         String email = jwt.getClaimAsString("email");
+        return photoBlogRepository.addItemToRecycleBinAsync(id)
+                .thenCompose(returnedAttribute -> relocateAsync(id, returnedAttribute, objectKey -> recycledKey(email, objectKey))
+                        .thenCompose(relocated -> feedVersionRepository.recordChangeAsync(
+                                returnedAttribute.get("owner").s()))
+                        .thenApply(recorded -> GetPhotoDto.builder()
+                                .imgId(returnedAttribute.get("picId").s())
+                                .build()));
+    }
+
+    @Override
+    public GetPhotoDto restoreFromRecycleBin(String id, Jwt jwt) {
         Map<String, AttributeValue> returnedAttribute = photoBlogRepository.restoreFromRecycleBin(id);
-        String objectKey = extractObjectKey(returnedAttribute.get("picUrl").s());
-        String oldObjectKey = objectKey.substring(objectKey.lastIndexOf("/") + 1);
-        s3Service.moveObject(objectKey, oldObjectKey);
-        String url = s3Service.generatePreSignedUrl(oldObjectKey,
-                24).toString();
-        photoBlogRepository.updatePreSignedUrlsInDynamo(id, url);
+        relocate(id, returnedAttribute, this::restoredKey);
+        feedVersionRepository.recordChange(returnedAttribute.get("owner").s());
         return GetPhotoDto.builder()
                 .imgId(returnedAttribute.get("picId").s())
                 .build();
     }
 
     @Override
-    public List<GetPhotoDto> retrieveAllImagesInRecyclingBin(Jwt jwt) {
-        String email = jwt.getClaimAsString("email");
-        List<GetPhotoDto> recycledItemsDetails = photoBlogRepository.getAllItemsInRecycleBin(email);
-        return checkAndRefreshPreSignedUrl(recycledItemsDetails);
+    public CompletableFuture<GetPhotoDto> restoreFromRecycleBinAsync(String id, Jwt jwt) {
+        return photoBlogRepository.restoreFromRecycleBinAsync(id)
+                .thenCompose(returnedAttribute -> relocateAsync(id, returnedAttribute, this::restoredKey)
+                        .thenCompose(relocated -> feedVersionRepository.recordChangeAsync(
+                                returnedAttribute.get("owner").s()))
+                        .thenApply(recorded -> GetPhotoDto.builder()
+                                .imgId(returnedAttribute.get("picId").s())
+                                .build()));
     }
 
-    private String extractObjectKey(String s3Url) {
-        try {
-            URI uri = new URI(s3Url);
+    private String recycledKey(String email, String objectKey) {
+        return RECYCLE_BIN_PATH + email + "/" + objectKey;
+    }
 
-            // Get the path part of the URL (e.g., "/subfolder/file.txt")
-            String path = uri.getPath();
+    // recycled keys are the recycle bin path and the owner in front of the original key
+    private String restoredKey(String objectKey) {
+        int ownerEnd = objectKey.startsWith(RECYCLE_BIN_PATH) ? objectKey.indexOf('/', RECYCLE_BIN_PATH.length()) : -1;
+        return objectKey.substring((ownerEnd >= 0 ? ownerEnd : objectKey.lastIndexOf('/')) + 1);
+    }
 
-            // Remove the leading slash to get the object key
-            if (path.startsWith("/")) {
-                path = path.substring(1);
-            }
+    // the original and its derivatives move together, as delete removes them together. Everything is copied,
+    // the item pointed at the copies, then the originals deleted. A failed copy leaves the item on keys that exist
+    private void relocate(String id, Map<String, AttributeValue> item, UnaryOperator<String> newKey) {
+        String objectKey = photoItemMapper.objectKey(item);
+        Map<String, String> derivatives = photoItemMapper.derivatives(item);
+
+        s3Service.copyObject(objectKey, newKey.apply(objectKey));
+        derivatives.values().forEach(key -> s3Service.copyObject(key, newKey.apply(key)));
+        photoBlogRepository.updateObjectKey(id, newKey.apply(objectKey), relocated(derivatives, newKey));
+        s3Service.deleteObject(objectKey);
+        derivatives.values().forEach(s3Service::deleteObject);
+    }
+
+    private CompletableFuture<Void> relocateAsync(String id, Map<String, AttributeValue> item, UnaryOperator<String> newKey) {
+        String objectKey = photoItemMapper.objectKey(item);
+        Map<String, String> derivatives = photoItemMapper.derivatives(item);
+
+        List<CompletableFuture<Void>> copies = new ArrayList<>();
+        copies.add(s3Service.copyObjectAsync(objectKey, newKey.apply(objectKey)));
+        derivatives.values().forEach(key -> copies.add(s3Service.copyObjectAsync(key, newKey.apply(key))));
+        return CompletableFuture.allOf(copies.toArray(CompletableFuture[]::new))
+                .thenCompose(copied -> photoBlogRepository.updateObjectKeyAsync(
+                        id, newKey.apply(objectKey), relocated(derivatives, newKey)))
+                .thenCompose(updated -> {
+                    List<CompletableFuture<Void>> deletions = new ArrayList<>();
+                    deletions.add(s3Service.deleteObjectAsync(objectKey));
+                    derivatives.values().forEach(key -> deletions.add(s3Service.deleteObjectAsync(key)));
+                    return CompletableFuture.allOf(deletions.toArray(CompletableFuture[]::new));
+                });
+    }
+
+    private static Map<String, String> relocated(Map<String, String> derivatives, UnaryOperator<String> newKey) {
+        Map<String, String> relocated = new LinkedHashMap<>();
+        derivatives.forEach((name, key) -> relocated.put(name, newKey.apply(key)));
+        return relocated;
+    }
+
+    @Override
+    public List<GetPhotoDto> retrieveAllImagesInRecyclingBin(Jwt jwt) {
+        String email = jwt.getClaimAsString("email");
+        List<GetPhotoDto> recycledItemsDetails = photoBlogRepository.getAllItemsInRecycleBin(email);
+        return withPreSignedUrls(recycledItemsDetails);
+    }
 
-            return path;
-        } catch (URISyntaxException e) {
-            throw new IllegalArgumentException("Invalid URL: " + s3Url);
+    @Override
+    public String recycleBinVersionTag(Jwt jwt) {
+        if (!feedVersionRepository.isEnabled()) {
+            return null;
         }
+
+        String email = jwt.getClaimAsString("email");
+        return versionTag("RECYCLE_BIN", email, feedVersionRepository.getOwnerVersion(email));
     }
 }
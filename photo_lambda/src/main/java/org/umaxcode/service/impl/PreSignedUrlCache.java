@@ -0,0 +1,102 @@
+package org.umaxcode.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps recently signed GET urls per warm container so hot photos skip SigV4 signing.
+ * A url is handed out again for at most a quarter of its signature duration, capped by
+ * {@code maxAge}, so callers always receive a url with most of its lifetime left.
+ */
+@Component
+public class PreSignedUrlCache {
+
+    private final Map<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    @Autowired
+    public PreSignedUrlCache(@Value("${application.preSignedUrlCache.maxEntries}") int maxEntries,
+                             @Value("${application.preSignedUrlCache.maxAge}") Duration maxAge) {
+        this(maxEntries, maxAge, Clock.systemUTC());
+    }
+
+    PreSignedUrlCache(int maxEntries, Duration maxAge, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    public URL get(String bucket, String objectKey, int expirationInHours, Supplier<URL> signer) {
+
+        CacheKey key = new CacheKey(bucket, objectKey, expirationInHours);
+        Instant now = clock.instant();
+
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null && now.isBefore(entry.reuseUntil())) {
+                hits.incrementAndGet();
+                return entry.url();
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        URL url = signer.get();
+        Duration reuseFor = Duration.ofHours(expirationInHours).dividedBy(4);
+        CacheEntry entry = new CacheEntry(url, now.plus(reuseFor.compareTo(maxAge) < 0 ? reuseFor : maxAge));
+
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        return url;
+    }
+
+    // drops every url signed for the object, whatever its signature duration
+    public void invalidate(String bucket, String objectKey) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.bucket().equals(bucket) && key.objectKey().equals(objectKey));
+        }
+    }
+
+    public CacheStats stats() {
+        synchronized (entries) {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), entries.size());
+        }
+    }
+
+    public record CacheStats(long hits, long misses, long evictions, int size) {
+    }
+
+    private record CacheKey(String bucket, String objectKey, int expirationInHours) {
+    }
+
+    private record CacheEntry(URL url, Instant reuseUntil) {
+    }
+}
@@ -1,18 +1,24 @@
 package org.umaxcode.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import org.umaxcode.domain.dto.response.GetPhotoDto;
 import org.umaxcode.service.S3Service;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.time.Duration;
 import java.util.HashMap;
@@ -22,7 +28,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-import static software.amazon.awssdk.core.sync.RequestBody.fromBytes;
+import static software.amazon.awssdk.core.sync.RequestBody.fromInputStream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,6 +36,11 @@ public class S3ServiceImpl implements S3Service {
 
     private final S3Client s3Client;
     private final S3Presigner s3Presigner;
+    private final PreSignedUrlCache preSignedUrlCache;
+    private final ObjectProvider<S3AsyncClient> s3AsyncClientProvider;
+    private final MultipartUploader multipartUploader;
+    @Value("${application.upload.multipartThreshold}")
+    private DataSize multipartThreshold;
     @Value("${application.aws.stageBucketName}")
     private String stageBucketName;
     @Value("${application.aws.primaryBucketName}")
@@ -46,12 +57,19 @@ public class S3ServiceImpl implements S3Service {
                 .bucket(stageBucketName)
                 .key(pic.getOriginalFilename())
                 .contentType(pic.getContentType())
+                .contentLength(pic.getSize())
                 .metadata(metadata)
                 .build();
 
-        try {
-            PutObjectResponse putResponse = s3Client.putObject(putRequest, fromBytes(pic.getBytes()));
-            System.out.printf("Put response: %s", putResponse);
+        // the file is streamed from the request, it is never copied into a byte array
+        try (InputStream in = pic.getInputStream()) {
+            if (pic.getSize() > multipartThreshold.toBytes()) {
+                multipartUploader.upload(putRequest, in);
+                System.out.printf("Multipart upload completed: %s%n", putRequest.key());
+            } else {
+                PutObjectResponse putResponse = s3Client.putObject(putRequest, fromInputStream(in, pic.getSize()));
+                System.out.printf("Put response: %s", putResponse);
+            }
             return "Image uploaded for processing";
         } catch (IOException ex) {
             System.out.printf("error: %s", ex.getMessage());
@@ -61,6 +79,11 @@ public class S3ServiceImpl implements S3Service {
 
     @Override
     public URL generatePreSignedUrl(String objectKey, int expirationInHours) {
+        return preSignedUrlCache.get(primaryBucketName, objectKey, expirationInHours,
+                () -> presignGetObject(objectKey, expirationInHours));
+    }
+
+    private URL presignGetObject(String objectKey, int expirationInHours) {
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(primaryBucketName)
                 .key(objectKey)
@@ -74,6 +97,27 @@ public class S3ServiceImpl implements S3Service {
         return s3Presigner.presignGetObject(preSignRequest).url();
     }
 
+    @Override
+    public PresignedPutObjectRequest presignUpload(String objectKey, String contentType, long contentLength,
+                                                   Map<String, String> metadata, Duration expiration) {
+
+        // content type, length and metadata become signed headers, the upload fails if the client changes them
+        PutObjectRequest putRequest = PutObjectRequest.builder()
+                .bucket(stageBucketName)
+                .key(objectKey)
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .metadata(metadata)
+                .build();
+
+        PutObjectPresignRequest preSignRequest = PutObjectPresignRequest.builder()
+                .signatureDuration(expiration)
+                .putObjectRequest(putRequest)
+                .build();
+
+        return s3Presigner.presignPutObject(preSignRequest);
+    }
+
 //    @Override
 //    public List<GetPhotoDto> getObjects(List<Map<String, String>> objectDetails) {
 //        return  objectDetails.stream().map(
@@ -107,11 +151,12 @@ public class S3ServiceImpl implements S3Service {
                 .build();
 
         s3Client.deleteObject(deleteRequest);
+        preSignedUrlCache.invalidate(primaryBucketName, objectKey);
     }
 
     @Override
-    public void moveObject(String sourceObjectKey, String destinationObjectKey) {
-        // Copy to recycled path
+    public void copyObject(String sourceObjectKey, String destinationObjectKey) {
+
         CopyObjectRequest copyReq = CopyObjectRequest.builder()
                 .sourceBucket(primaryBucketName)
                 .sourceKey(sourceObjectKey)
@@ -119,12 +164,38 @@ public class S3ServiceImpl implements S3Service {
                 .destinationKey(destinationObjectKey)
                 .build();
         s3Client.copyObject(copyReq);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteObjectAsync(String objectKey) {
 
-        // Delete original
-        DeleteObjectRequest deleteReq = DeleteObjectRequest.builder()
+        DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
                 .bucket(primaryBucketName)
-                .key(sourceObjectKey)
+                .key(objectKey)
                 .build();
-        s3Client.deleteObject(deleteReq);
+
+        return s3AsyncClient().deleteObject(deleteRequest)
+                .thenRun(() -> preSignedUrlCache.invalidate(primaryBucketName, objectKey));
+    }
+
+    @Override
+    public CompletableFuture<Void> copyObjectAsync(String sourceObjectKey, String destinationObjectKey) {
+
+        CopyObjectRequest copyReq = CopyObjectRequest.builder()
+                .sourceBucket(primaryBucketName)
+                .sourceKey(sourceObjectKey)
+                .destinationBucket(primaryBucketName)
+                .destinationKey(destinationObjectKey)
+                .build();
+
+        return s3AsyncClient().copyObject(copyReq).thenApply(copied -> null);
+    }
+
+    private S3AsyncClient s3AsyncClient() {
+        S3AsyncClient client = s3AsyncClientProvider.getIfAvailable();
+        if (client == null) {
+            throw new IllegalStateException("Async S3 client is disabled, set application.aws.asyncEnabled");
+        }
+        return client;
     }
 }
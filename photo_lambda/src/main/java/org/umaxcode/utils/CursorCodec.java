@@ -0,0 +1,137 @@
+package org.umaxcode.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.umaxcode.exception.PhotoBlogException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Converts DynamoDB exclusive start keys to opaque, url safe cursor tokens and back.
+ * Only string key attributes are supported, which covers the table and all of its indexes.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class CursorCodec {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> KEY_TYPE = new TypeReference<>() {
+    };
+    private static final TypeReference<SegmentsCursor> SEGMENTS_TYPE = new TypeReference<>() {
+    };
+
+    public static String encode(Map<String, AttributeValue> lastEvaluatedKey) {
+
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+
+        return toToken(toStringKey(lastEvaluatedKey));
+    }
+
+    public static Map<String, AttributeValue> decode(String cursor) {
+
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        return toAttributeKey(fromToken(cursor, KEY_TYPE));
+    }
+
+    /**
+     * Encodes the position of every unfinished segment of a parallel scan. Segments that have
+     * not been read yet map to an empty key, finished segments are left out.
+     */
+    public static String encodeSegments(int totalSegments, Map<Integer, Map<String, AttributeValue>> segmentKeys) {
+
+        if (segmentKeys.isEmpty()) {
+            return null;
+        }
+
+        Map<Integer, Map<String, String>> segments = new TreeMap<>();
+        segmentKeys.forEach((segment, key) -> segments.put(segment, toStringKey(key)));
+        return toToken(new SegmentsCursor(totalSegments, segments));
+    }
+
+    public static Map<Integer, Map<String, AttributeValue>> decodeSegments(String cursor, int totalSegments) {
+
+        Map<Integer, Map<String, AttributeValue>> segmentKeys = new TreeMap<>();
+
+        if (cursor == null || cursor.isBlank()) {
+            for (int segment = 0; segment < totalSegments; segment++) {
+                segmentKeys.put(segment, Map.of());
+            }
+            return segmentKeys;
+        }
+
+        SegmentsCursor segmentsCursor = fromToken(cursor, SEGMENTS_TYPE);
+        if (segmentsCursor == null || segmentsCursor.t() != totalSegments || segmentsCursor.s() == null) {
+            throw new PhotoBlogException("Invalid cursor");
+        }
+
+        segmentsCursor.s().forEach((segment, key) -> {
+            if (segment < 0 || segment >= totalSegments) {
+                throw new PhotoBlogException("Invalid cursor");
+            }
+            segmentKeys.put(segment, toAttributeKey(key));
+        });
+        return segmentKeys;
+    }
+
+    private static Map<String, String> toStringKey(Map<String, AttributeValue> attributeKey) {
+
+        Map<String, String> key = new HashMap<>();
+        attributeKey.forEach((name, value) -> {
+            if (value.s() == null) {
+                throw new IllegalStateException("Unsupported cursor key attribute: " + name);
+            }
+            key.put(name, value.s());
+        });
+        return key;
+    }
+
+    private static Map<String, AttributeValue> toAttributeKey(Map<String, String> key) {
+
+        // a hand edited token can still be valid json, a null here would reach DynamoDB as a broken key
+        if (key == null) {
+            throw new PhotoBlogException("Invalid cursor");
+        }
+        Map<String, AttributeValue> attributeKey = new HashMap<>();
+        key.forEach((name, value) -> {
+            if (value == null) {
+                throw new PhotoBlogException("Invalid cursor");
+            }
+            attributeKey.put(name, AttributeValue.builder().s(value).build());
+        });
+        return attributeKey;
+    }
+
+    private static String toToken(Object cursor) {
+        try {
+            byte[] json = OBJECT_MAPPER.writeValueAsBytes(cursor);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not encode cursor", ex);
+        }
+    }
+
+    private static <T> T fromToken(String cursor, TypeReference<T> type) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            return OBJECT_MAPPER.readValue(new String(json, StandardCharsets.UTF_8), type);
+        } catch (IllegalArgumentException | JsonProcessingException ex) {
+            throw new PhotoBlogException("Invalid cursor");
+        }
+    }
+
+    // short property names keep the token small, t = total segments, s = segment positions
+    private record SegmentsCursor(int t, Map<Integer, Map<String, String>> s) {
+    }
+}
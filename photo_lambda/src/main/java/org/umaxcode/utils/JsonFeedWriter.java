@@ -0,0 +1,64 @@
+package org.umaxcode.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.umaxcode.domain.dto.response.GetPhotoDto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes a feed straight to the response in the same shape as {@code SuccessResponse},
+ * one photo at a time. Nothing is written until the first photo or {@link #finish(String)},
+ * so errors raised before that still reach the exception handler as a normal error response.
+ */
+public class JsonFeedWriter implements Consumer<GetPhotoDto> {
+
+    private final ObjectMapper objectMapper;
+    private final HttpServletResponse response;
+    private final String message;
+    private JsonGenerator generator;
+
+    public JsonFeedWriter(ObjectMapper objectMapper, HttpServletResponse response, String message) {
+        this.objectMapper = objectMapper;
+        this.response = response;
+        this.message = message;
+    }
+
+    @Override
+    public void accept(GetPhotoDto photo) {
+        try {
+            start();
+            generator.writeObject(photo);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void finish(String nextCursor) throws IOException {
+        start();
+        generator.writeEndArray();
+        if (nextCursor != null) {
+            generator.writeStringField("nextCursor", nextCursor);
+        }
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    private void start() throws IOException {
+        if (generator != null) {
+            return;
+        }
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.writeStartObject();
+        generator.writeStringField("message", message);
+        generator.writeArrayFieldStart("data");
+    }
+}
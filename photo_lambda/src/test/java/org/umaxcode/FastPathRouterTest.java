@@ -0,0 +1,162 @@
+package org.umaxcode;
+
+
+import com.amazonaws.serverless.proxy.internal.LambdaContainerHandler;
+import com.amazonaws.serverless.proxy.internal.testutils.AwsProxyRequestBuilder;
+import com.amazonaws.serverless.proxy.internal.testutils.MockLambdaContext;
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import com.amazonaws.services.lambda.runtime.Context;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.umaxcode.fastpath.FastPathRouter;
+
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.core.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sends each request once through the fast path and once through Spring, the two must give the
+ * same answer.
+ */
+public class FastPathRouterTest {
+
+    private static final String PATH = "/photos/3f1c/generate-pre-signed-url";
+    private static final String OWNER = "jane@example.com";
+    private static final String ALLOWED_ORIGIN = "http://localhost:3000";
+    private static final String INVALID_TOKEN = "Bearer error=\"invalid_token\"";
+
+    private static StreamLambdaHandler fastPathHandler;
+    private static StreamLambdaHandler springHandler;
+    private static Context lambdaContext;
+
+    @BeforeAll
+    public static void setUp() {
+        fastPathHandler = new StreamLambdaHandler(true);
+        springHandler = new StreamLambdaHandler(false);
+        lambdaContext = new MockLambdaContext();
+        assertNotNull(FastPathRouter.instance(), "the test profile enables the fast path");
+    }
+
+    @Test
+    public void preSignedUrl_missingToken_responds401() {
+        AwsProxyResponse[] responses = bothPaths(() -> request());
+
+        for (AwsProxyResponse response : responses) {
+            assertEquals(401, response.getStatusCode());
+            assertEquals("Bearer", header(response, HttpHeaders.WWW_AUTHENTICATE));
+        }
+        assertSameAnswer(responses);
+    }
+
+    @Test
+    public void preSignedUrl_malformedToken_responds401WithInvalidToken() {
+        AwsProxyResponse[] responses = bothPaths(() -> request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer not a token!"));
+
+        for (AwsProxyResponse response : responses) {
+            assertEquals(401, response.getStatusCode());
+            assertTrue(header(response, HttpHeaders.WWW_AUTHENTICATE).startsWith(INVALID_TOKEN));
+        }
+        assertSameAnswer(responses);
+    }
+
+    @Test
+    public void preSignedUrl_tokenSignedWithUnknownKey_responds401WithInvalidToken() {
+        AwsProxyResponse[] responses = bothPaths(() -> request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + TestSecurityConfig.foreignToken(OWNER)));
+
+        for (AwsProxyResponse response : responses) {
+            assertEquals(401, response.getStatusCode());
+            assertTrue(header(response, HttpHeaders.WWW_AUTHENTICATE).startsWith(INVALID_TOKEN));
+        }
+        assertSameAnswer(responses);
+    }
+
+    @Test
+    public void preSignedUrl_validToken_respondsWithUrl() {
+        AwsProxyResponse[] responses = bothPaths(() -> request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + TestSecurityConfig.token(OWNER)));
+
+        for (AwsProxyResponse response : responses) {
+            assertEquals(200, response.getStatusCode());
+            assertNull(header(response, HttpHeaders.WWW_AUTHENTICATE));
+            assertTrue(header(response, HttpHeaders.CONTENT_TYPE).startsWith(MediaType.APPLICATION_JSON));
+            assertTrue(response.getBody().contains(TestSecurityConfig.PRE_SIGNED_URL + "3f1c?owner=" + OWNER));
+        }
+        assertSameAnswer(responses);
+    }
+
+    @Test
+    public void preSignedUrl_allowedOrigin_respondsWithCorsHeaders() {
+        AwsProxyResponse[] responses = bothPaths(() -> request()
+                .header(HttpHeaders.ORIGIN, ALLOWED_ORIGIN)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + TestSecurityConfig.token(OWNER)));
+
+        for (AwsProxyResponse response : responses) {
+            assertEquals(200, response.getStatusCode());
+            assertEquals(ALLOWED_ORIGIN, header(response, "Access-Control-Allow-Origin"));
+            assertEquals("true", header(response, "Access-Control-Allow-Credentials"));
+        }
+        assertSameAnswer(responses);
+    }
+
+    @Test
+    public void preSignedUrl_disallowedOrigin_responds403BeforeCheckingTheToken() {
+        AwsProxyResponse[] responses = bothPaths(() -> request()
+                .header(HttpHeaders.ORIGIN, "https://evil.example.com")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + TestSecurityConfig.token(OWNER)));
+
+        for (AwsProxyResponse response : responses) {
+            assertEquals(403, response.getStatusCode());
+            assertNull(header(response, "Access-Control-Allow-Origin"));
+            assertFalse(response.getBody().contains(TestSecurityConfig.PRE_SIGNED_URL));
+        }
+        assertSameAnswer(responses);
+    }
+
+    private static AwsProxyRequestBuilder request() {
+        return new AwsProxyRequestBuilder(PATH, HttpMethod.GET)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
+    }
+
+    // the fast path answer first, then the Spring one
+    private AwsProxyResponse[] bothPaths(Supplier<AwsProxyRequestBuilder> request) {
+        return new AwsProxyResponse[]{
+                handle(fastPathHandler, request.get()),
+                handle(springHandler, request.get())
+        };
+    }
+
+    private static void assertSameAnswer(AwsProxyResponse[] responses) {
+        AwsProxyResponse fastPath = responses[0];
+        AwsProxyResponse spring = responses[1];
+        assertEquals(spring.getStatusCode(), fastPath.getStatusCode());
+        for (String name : new String[]{HttpHeaders.WWW_AUTHENTICATE, "Access-Control-Allow-Origin",
+                "Access-Control-Allow-Credentials", HttpHeaders.CACHE_CONTROL, "X-Content-Type-Options"}) {
+            assertEquals(header(spring, name), header(fastPath, name), name);
+        }
+    }
+
+    private static String header(AwsProxyResponse response, String name) {
+        return response.getMultiValueHeaders() == null ? null : response.getMultiValueHeaders().getFirst(name);
+    }
+
+    private AwsProxyResponse handle(StreamLambdaHandler handler, AwsProxyRequestBuilder request) {
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+        try {
+            handler.handleRequest(request.buildStream(), responseStream, lambdaContext);
+            return LambdaContainerHandler.getObjectMapper().readValue(responseStream.toByteArray(), AwsProxyResponse.class);
+        } catch (IOException e) {
+            e.printStackTrace();
+            fail(e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,140 @@
+package org.umaxcode.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.umaxcode.MutableClock;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingJwtDecoderTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private MutableClock clock;
+    private FakeDecoder delegate;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock(NOW);
+        delegate = new FakeDecoder();
+    }
+
+    @Test
+    public void decode_sameTokenTwice_verifiesOnce() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, clock);
+        delegate.expiresAt("a", NOW.plus(Duration.ofHours(1)));
+
+        Jwt first = decoder.decode("a");
+        Jwt second = decoder.decode("a");
+
+        assertSame(first, second);
+        assertEquals(List.of("a"), delegate.decoded);
+    }
+
+    @Test
+    public void decode_atExpiry_verifiesAgain() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, clock);
+        delegate.expiresAt("a", NOW.plus(Duration.ofMinutes(5)));
+
+        decoder.decode("a");
+        clock.advance(Duration.ofMinutes(5).minusMillis(1));
+        decoder.decode("a");
+        assertEquals(1, delegate.decoded.size());
+
+        clock.advance(Duration.ofMillis(1));
+        decoder.decode("a");
+        assertEquals(2, delegate.decoded.size());
+    }
+
+    @Test
+    public void decode_afterExpiry_isLeftToTheDelegateToReject() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, clock);
+        delegate.expiresAt("a", NOW.plus(Duration.ofMinutes(5)));
+        decoder.decode("a");
+
+        clock.advance(Duration.ofMinutes(10));
+        delegate.reject("a");
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("a"));
+    }
+
+    @Test
+    public void decode_tokenWithoutExpiry_isNeverCached() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, clock);
+        delegate.expiresAt("a", null);
+
+        decoder.decode("a");
+        decoder.decode("a");
+
+        assertEquals(List.of("a", "a"), delegate.decoded);
+    }
+
+    @Test
+    public void decode_invalidToken_isRejectedEveryTime() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, clock);
+        delegate.reject("forged");
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("forged"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("forged"));
+
+        assertEquals(List.of("forged", "forged"), delegate.decoded);
+    }
+
+    @Test
+    public void decode_overMaxEntries_evictsLeastRecentlyUsed() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 2, clock);
+        for (String token : List.of("a", "b", "c")) {
+            delegate.expiresAt(token, NOW.plus(Duration.ofHours(1)));
+        }
+
+        decoder.decode("a");
+        decoder.decode("b");
+        // a is now the most recently used, so c pushes b out
+        decoder.decode("a");
+        decoder.decode("c");
+        assertEquals(List.of("a", "b", "c"), delegate.decoded);
+
+        decoder.decode("a");
+        decoder.decode("c");
+        assertEquals(3, delegate.decoded.size());
+        decoder.decode("b");
+        assertEquals(List.of("a", "b", "c", "b"), delegate.decoded);
+    }
+
+    private static final class FakeDecoder implements JwtDecoder {
+
+        private final Map<String, Instant> expiries = new HashMap<>();
+        private final List<String> decoded = new ArrayList<>();
+
+        void expiresAt(String token, Instant expiresAt) {
+            expiries.put(token, expiresAt);
+        }
+
+        void reject(String token) {
+            expiries.remove(token);
+        }
+
+        @Override
+        public Jwt decode(String token) {
+            decoded.add(token);
+            if (!expiries.containsKey(token)) {
+                throw new BadJwtException("Signed JWT rejected: Invalid signature");
+            }
+            return Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("jane@example.com")
+                    .expiresAt(expiries.get(token))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.umaxcode.metrics;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.InterceptorContext;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsumedCapacityInterceptorTest {
+
+    private final RecordingMetricsRecorder metricsRecorder = new RecordingMetricsRecorder();
+    private final ConsumedCapacityInterceptor interceptor = new ConsumedCapacityInterceptor(metricsRecorder);
+
+    @Test
+    public void afterExecution_singleCapacity_isRecorded() {
+        QueryResponse response = QueryResponse.builder()
+                .consumedCapacity(ConsumedCapacity.builder().tableName("photos").capacityUnits(2.5).build())
+                .build();
+
+        interceptor.afterExecution(context(QueryRequest.builder().build(), response), attributes("Query"));
+
+        assertEquals(List.of("Query photos 2.5"), metricsRecorder.recorded);
+    }
+
+    @Test
+    public void afterExecution_batchWriteItem_sumsEveryTable() {
+        BatchWriteItemResponse response = BatchWriteItemResponse.builder()
+                .consumedCapacity(
+                        ConsumedCapacity.builder().tableName("photos").capacityUnits(3.0).build(),
+                        ConsumedCapacity.builder().tableName("feed").capacityUnits(1.0).build())
+                .build();
+
+        interceptor.afterExecution(context(BatchWriteItemRequest.builder().build(), response), attributes("BatchWriteItem"));
+
+        assertEquals(List.of("BatchWriteItem photos,feed 4.0"), metricsRecorder.recorded);
+    }
+
+    @Test
+    public void afterExecution_batchWriteItemWithoutCapacity_recordsNothing() {
+        BatchWriteItemResponse response = BatchWriteItemResponse.builder().build();
+
+        interceptor.afterExecution(context(BatchWriteItemRequest.builder().build(), response), attributes("BatchWriteItem"));
+
+        assertTrue(metricsRecorder.recorded.isEmpty());
+    }
+
+    @Test
+    public void afterExecution_capacityNotAskedFor_recordsNothing() {
+        interceptor.afterExecution(context(PutItemRequest.builder().build(), PutItemResponse.builder().build()), attributes("PutItem"));
+
+        assertTrue(metricsRecorder.recorded.isEmpty());
+    }
+
+    @Test
+    public void modifyRequest_query_asksForTotalCapacity() {
+        QueryRequest request = (QueryRequest) interceptor.modifyRequest(
+                InterceptorContext.builder().request(QueryRequest.builder().build()).build(), attributes("Query"));
+
+        assertEquals(ReturnConsumedCapacity.TOTAL, request.returnConsumedCapacity());
+    }
+
+    private static InterceptorContext context(SdkRequest request, SdkResponse response) {
+        return InterceptorContext.builder().request(request).response(response).build();
+    }
+
+    private static ExecutionAttributes attributes(String operationName) {
+        ExecutionAttributes attributes = new ExecutionAttributes();
+        attributes.putAttribute(SdkExecutionAttribute.OPERATION_NAME, operationName);
+        return attributes;
+    }
+
+    private static final class RecordingMetricsRecorder extends MetricsRecorder {
+
+        private final List<String> recorded = new ArrayList<>();
+
+        @Override
+        public void recordConsumedCapacity(String operation, String tableName, double capacityUnits) {
+            recorded.add(operation + " " + tableName + " " + capacityUnits);
+        }
+    }
+}
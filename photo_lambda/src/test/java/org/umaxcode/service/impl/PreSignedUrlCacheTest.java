@@ -0,0 +1,131 @@
+package org.umaxcode.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.umaxcode.MutableClock;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreSignedUrlCacheTest {
+
+    private static final String BUCKET = "primary-bucket";
+
+    private MutableClock clock;
+    private AtomicInteger signed;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T10:00:00Z"));
+        signed = new AtomicInteger();
+    }
+
+    @Test
+    public void get_sameObjectTwice_signsOnce() {
+        PreSignedUrlCache cache = new PreSignedUrlCache(10, Duration.ofMinutes(15), clock);
+
+        URL first = cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        URL second = cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+
+        assertSame(first, second);
+        assertEquals(1, signed.get());
+        assertEquals(new PreSignedUrlCache.CacheStats(1, 1, 0, 1), cache.stats());
+    }
+
+    @Test
+    public void get_afterMaxAge_signsAgain() {
+        PreSignedUrlCache cache = new PreSignedUrlCache(10, Duration.ofMinutes(15), clock);
+
+        cache.get(BUCKET, "a.jpg", 5, signer("a.jpg"));
+        clock.advance(Duration.ofMinutes(14));
+        cache.get(BUCKET, "a.jpg", 5, signer("a.jpg"));
+        assertEquals(1, signed.get());
+
+        clock.advance(Duration.ofMinutes(1));
+        cache.get(BUCKET, "a.jpg", 5, signer("a.jpg"));
+        assertEquals(2, signed.get());
+    }
+
+    @Test
+    public void get_shortSignature_isReusedForAQuarterOfIt() {
+        PreSignedUrlCache cache = new PreSignedUrlCache(10, Duration.ofHours(2), clock);
+
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        clock.advance(Duration.ofMinutes(14));
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        assertEquals(1, signed.get());
+
+        clock.advance(Duration.ofMinutes(1));
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        assertEquals(2, signed.get());
+    }
+
+    @Test
+    public void get_zeroMaxAge_neverReuses() {
+        PreSignedUrlCache cache = new PreSignedUrlCache(10, Duration.ZERO, clock);
+
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+
+        assertEquals(2, signed.get());
+    }
+
+    @Test
+    public void get_otherSignatureDuration_isSignedSeparately() {
+        PreSignedUrlCache cache = new PreSignedUrlCache(10, Duration.ofMinutes(15), clock);
+
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        cache.get(BUCKET, "a.jpg", 24, signer("a.jpg"));
+
+        assertEquals(2, signed.get());
+    }
+
+    @Test
+    public void get_overMaxEntries_evictsLeastRecentlyUsed() {
+        PreSignedUrlCache cache = new PreSignedUrlCache(2, Duration.ofMinutes(15), clock);
+
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        cache.get(BUCKET, "b.jpg", 1, signer("b.jpg"));
+        // a is now the most recently used, so c pushes b out
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        cache.get(BUCKET, "c.jpg", 1, signer("c.jpg"));
+        assertEquals(3, signed.get());
+        assertEquals(2, cache.stats().size());
+        assertEquals(1, cache.stats().evictions());
+
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        assertEquals(3, signed.get());
+        cache.get(BUCKET, "b.jpg", 1, signer("b.jpg"));
+        assertEquals(4, signed.get());
+    }
+
+    @Test
+    public void invalidate_dropsEverySignatureDuration() {
+        PreSignedUrlCache cache = new PreSignedUrlCache(10, Duration.ofMinutes(15), clock);
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        cache.get(BUCKET, "a.jpg", 24, signer("a.jpg"));
+        cache.get(BUCKET, "b.jpg", 1, signer("b.jpg"));
+
+        cache.invalidate(BUCKET, "a.jpg");
+
+        assertEquals(1, cache.stats().size());
+        cache.get(BUCKET, "a.jpg", 1, signer("a.jpg"));
+        assertEquals(4, signed.get());
+    }
+
+    private Supplier<URL> signer(String objectKey) {
+        return () -> {
+            try {
+                return new URL("https://" + BUCKET + ".s3.amazonaws.com/" + objectKey + "?X-Amz-Signature=" + signed.incrementAndGet());
+            } catch (MalformedURLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package org.umaxcode.utils;
+
+import org.junit.jupiter.api.Test;
+import org.umaxcode.exception.PhotoBlogException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CursorCodecTest {
+
+    @Test
+    public void encode_thenDecode_returnsTheSameKey() {
+        Map<String, AttributeValue> key = Map.of(
+                "picId", AttributeValue.builder().s("3f1c").build(),
+                "owner", AttributeValue.builder().s("jane@example.com").build(),
+                "dateOfUpload", AttributeValue.builder().s("2024-05-01T10:15:30").build());
+
+        String cursor = CursorCodec.encode(key);
+
+        assertNotNull(cursor);
+        assertFalse(cursor.contains("+") || cursor.contains("/") || cursor.contains("="), "cursor is not url safe: " + cursor);
+        assertEquals(key, CursorCodec.decode(cursor));
+    }
+
+    @Test
+    public void encode_emptyOrMissingKey_returnsNoCursor() {
+        assertNull(CursorCodec.encode(null));
+        assertNull(CursorCodec.encode(Map.of()));
+        assertNull(CursorCodec.decode(null));
+        assertNull(CursorCodec.decode(" "));
+    }
+
+    @Test
+    public void encode_nonStringAttribute_isRejected() {
+        Map<String, AttributeValue> key = Map.of("isPlacedInRecycleBin", AttributeValue.builder().n("0").build());
+
+        assertThrows(IllegalStateException.class, () -> CursorCodec.encode(key));
+    }
+
+    @Test
+    public void decode_garbage_isRejected() {
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decode("not a cursor!"));
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decode(token("{\"picId\":")));
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decode(token("[1,2,3]")));
+    }
+
+    @Test
+    public void decode_tamperedJson_isRejected() {
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decode(token("null")));
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decode(token("{\"picId\":null}")));
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decode(token("{\"picId\":{\"S\":\"x\"}}")));
+    }
+
+    @Test
+    public void encodeSegments_thenDecode_keepsUnfinishedSegmentsOnly() {
+        Map<Integer, Map<String, AttributeValue>> positions = new TreeMap<>();
+        positions.put(0, Map.of("picId", AttributeValue.builder().s("a").build()));
+        positions.put(2, Map.of());
+
+        String cursor = CursorCodec.encodeSegments(4, positions);
+
+        assertEquals(positions, CursorCodec.decodeSegments(cursor, 4));
+    }
+
+    @Test
+    public void encodeSegments_allSegmentsFinished_returnsNoCursor() {
+        assertNull(CursorCodec.encodeSegments(4, Map.of()));
+    }
+
+    @Test
+    public void decodeSegments_noCursor_startsEverySegment() {
+        Map<Integer, Map<String, AttributeValue>> positions = CursorCodec.decodeSegments(null, 3);
+
+        assertEquals(Map.of(0, Map.of(), 1, Map.of(), 2, Map.of()), positions);
+    }
+
+    @Test
+    public void decodeSegments_otherSegmentCount_isRejected() {
+        String cursor = CursorCodec.encodeSegments(4, Map.of(1, Map.of()));
+
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decodeSegments(cursor, 8));
+    }
+
+    @Test
+    public void decodeSegments_tamperedJson_isRejected() {
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decodeSegments(token("{\"t\":4,\"s\":{\"7\":{}}}"), 4));
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decodeSegments(token("{\"t\":4,\"s\":{\"-1\":{}}}"), 4));
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decodeSegments(token("{\"t\":4}"), 4));
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decodeSegments(token("{\"t\":4,\"s\":{\"0\":null}}"), 4));
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decodeSegments(token("null"), 4));
+        assertThrows(PhotoBlogException.class, () -> CursorCodec.decodeSegments("%%%", 4));
+    }
+
+    private static String token(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,101 @@
+package org.umaxcode.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.umaxcode.image.WatermarkEngine;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watermarking one decoded image: the Graphics2D drawString path the processor used before,
+ * creating its font, date format and metrics on every call, against the cached mask blended
+ * into the raster. {@code coldMask} pays for rendering the mask, as the first upload of an owner
+ * on a given day does. The image is watermarked again on every call, which costs the same as a
+ * fresh one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WatermarkBenchmark {
+
+    private static final String OWNER_LINE = "Owner: Jane Doe";
+
+    // what JPEG, PNG with alpha and GIF uploads decode to, and what derivatives are scaled into
+    @Param({"TYPE_3BYTE_BGR", "TYPE_4BYTE_ABGR", "TYPE_BYTE_INDEXED", "TYPE_INT_RGB"})
+    private String imageType;
+
+    @Param({"1024x768", "4000x3000"})
+    private String size;
+
+    private BufferedImage image;
+    private WatermarkEngine watermarkEngine;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        String[] dimensions = size.split("x");
+        int type = BufferedImage.class.getField(imageType).getInt(null);
+        image = new BufferedImage(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), type);
+
+        // noise rather than a flat colour, so nothing is cheaper than on a real photo
+        Random random = new Random(42);
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = 0xff000000 | random.nextInt(0x1000000);
+            }
+            image.setRGB(0, y, row.length, 1, row, 0, row.length);
+        }
+
+        watermarkEngine = new WatermarkEngine();
+    }
+
+    @Benchmark
+    public BufferedImage graphics2dDrawString() {
+
+        Graphics2D g2d = image.createGraphics();
+        g2d.setFont(new Font("Arial", Font.BOLD, 25));
+        g2d.setColor(new Color(255, 0, 0, 216));
+        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+
+        String currentDate = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+        String dateLine = "Date of Upload: " + currentDate;
+
+        FontMetrics fontMetrics = g2d.getFontMetrics();
+        int textHeight = fontMetrics.getHeight();
+        int yCenter = image.getHeight() / 2;
+        g2d.drawString(OWNER_LINE, (image.getWidth() - fontMetrics.stringWidth(OWNER_LINE)) / 2, yCenter - textHeight / 2);
+        g2d.drawString(dateLine, (image.getWidth() - fontMetrics.stringWidth(dateLine)) / 2, yCenter + textHeight);
+        g2d.dispose();
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage cachedMask() {
+        watermarkEngine.apply(image, OWNER_LINE, "Date of Upload: " + LocalDate.now());
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage coldMask() {
+        new WatermarkEngine().apply(image, OWNER_LINE, "Date of Upload: " + LocalDate.now());
+        return image;
+    }
+}
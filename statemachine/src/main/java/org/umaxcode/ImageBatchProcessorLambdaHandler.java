@@ -0,0 +1,241 @@
+package org.umaxcode;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.umaxcode.aws.InitTimer;
+import org.umaxcode.exception.ImageProcessingException;
+import org.umaxcode.image.ImageDecoder;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Processes the staged uploads of an SQS batch side by side, each message carrying the S3 "Object
+ * Created" event the state machine would otherwise have been started with. Images that fail are
+ * reported back as batch item failures, so only they return to the queue, and the owner is
+ * notified once the last attempt fails.
+ * <p>
+ * An image still running when the invocation is about to time out cannot be stopped, ImageIO does
+ * not answer interrupts, so it keeps its worker until it finishes. Later invocations in the same
+ * container only take on as many messages as there are workers free and return the rest, which
+ * the queue redelivers once the visibility timeout passes.
+ */
+public class ImageBatchProcessorLambdaHandler implements RequestHandler<SQSEvent, SQSBatchResponse> {
+
+    // the decoded raster takes 4 bytes a pixel, about as much again goes to derivatives and encoded output
+    private static final int WORKING_BYTES_PER_PIXEL = 8;
+    // a 24 megapixel photo, the size most phone and camera uploads stay under
+    static final long IMAGE_BUDGET_BYTES = 24_000_000L * WORKING_BYTES_PER_PIXEL;
+    // kept back from the invocation timeout to return the failures of images still running
+    private static final long RESPONSE_MARGIN_MILLIS = 2_000;
+
+    private final RequestHandler<Map<String, Object>, Void> imageProcessor;
+    private final BiFunction<Map<String, Object>, String, ImageProcessingException> failure;
+    private final RequestHandler<Map<String, Object>, Void> failureNotifier;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService workers;
+    private final int concurrency;
+    // images still on a worker, including those an earlier invocation gave up waiting for
+    private final AtomicInteger running = new AtomicInteger();
+    private final int maxReceiveCount;
+
+    public ImageBatchProcessorLambdaHandler() {
+        this(InitTimer.start("ImageBatchProcessorLambdaHandler"), new ImageProcessorLambdaHandler());
+    }
+
+    private ImageBatchProcessorLambdaHandler(InitTimer initTimer, ImageProcessorLambdaHandler imageProcessor) {
+        this(imageProcessor, imageProcessor::failure, new ImageProcessingFailureNotificationFunction(),
+                intFromEnvironment("IMAGE_BATCH_CONCURRENCY", concurrency(Runtime.getRuntime().maxMemory(),
+                        ImageDecoder.fromEnvironment().maxPixels(), Runtime.getRuntime().availableProcessors())),
+                intFromEnvironment("IMAGE_QUEUE_MAX_RECEIVE_COUNT", 3));
+        initTimer.done();
+    }
+
+    ImageBatchProcessorLambdaHandler(RequestHandler<Map<String, Object>, Void> imageProcessor,
+                                     BiFunction<Map<String, Object>, String, ImageProcessingException> failure,
+                                     RequestHandler<Map<String, Object>, Void> failureNotifier,
+                                     int concurrency, int maxReceiveCount) {
+        this.imageProcessor = imageProcessor;
+        this.failure = failure;
+        this.failureNotifier = failureNotifier;
+        this.objectMapper = new ObjectMapper();
+        this.concurrency = concurrency;
+        this.maxReceiveCount = maxReceiveCount;
+        this.workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "image-batch-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.out.println("Processing up to " + concurrency + " images at a time");
+    }
+
+    /**
+     * One worker keeps room for the largest image the decoder accepts, every other worker is given
+     * {@link #IMAGE_BUDGET_BYTES}, and there are no more than two per processor, the S3 transfers
+     * leave room for a second one.
+     */
+    static int concurrency(long maxHeapBytes, long maxPixels, int processors) {
+
+        long largestImageBytes = Math.max(IMAGE_BUDGET_BYTES, maxPixels * WORKING_BYTES_PER_PIXEL);
+        long fitsInHeap = 1 + Math.max(0, maxHeapBytes - largestImageBytes) / IMAGE_BUDGET_BYTES;
+        return (int) Math.max(1, Math.min(fitsInHeap, processors * 2L));
+    }
+
+    @Override
+    public SQSBatchResponse handleRequest(SQSEvent event, Context context) {
+
+        long deadline = System.currentTimeMillis() + context.getRemainingTimeInMillis() - RESPONSE_MARGIN_MILLIS;
+        int free = concurrency - running.get();
+
+        List<SQSBatchResponse.BatchItemFailure> failures = new ArrayList<>();
+        List<Attempt> attempts = new ArrayList<>();
+        for (SQSEvent.SQSMessage message : event.getRecords()) {
+            if (attempts.size() >= free) {
+                context.getLogger().log("Message " + message.getMessageId() + " returned, every worker is busy");
+                giveUp(new Attempt(message), "The image could not be processed in time", context);
+                failures.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+                continue;
+            }
+            Attempt attempt = new Attempt(message);
+            running.incrementAndGet();
+            attempt.result = workers.submit(() -> {
+                try {
+                    return process(attempt, context);
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+            attempts.add(attempt);
+        }
+
+        for (Attempt attempt : attempts) {
+            if (!succeeded(attempt, deadline, context)) {
+                failures.add(new SQSBatchResponse.BatchItemFailure(attempt.message.getMessageId()));
+            }
+        }
+
+        int received = event.getRecords().size();
+        context.getLogger().log("Processed " + (received - failures.size()) + " of " + received + " images");
+        return new SQSBatchResponse(failures);
+    }
+
+    private boolean process(Attempt attempt, Context context) {
+
+        SQSEvent.SQSMessage message = attempt.message;
+        try {
+            imageProcessor.handleRequest(s3Event(message), context);
+            return true;
+        } catch (NoSuchKeyException ex) {
+            // an earlier delivery of the same event already processed the upload and removed it from staging
+            context.getLogger().log("Message " + message.getMessageId() + " refers to an image that is already processed");
+            return true;
+        } catch (Exception ex) {
+            context.getLogger().log("Message " + message.getMessageId() + " failed: " + ex.getMessage());
+            if (isLastAttempt(message) && attempt.notified.compareAndSet(false, true)) {
+                notifyFailure(ex, context);
+            }
+            return false;
+        }
+    }
+
+    private boolean succeeded(Attempt attempt, long deadline, Context context) {
+
+        String messageId = attempt.message.getMessageId();
+        try {
+            return attempt.result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // left to finish on its worker, a retry that finds the object gone counts it as processed
+            context.getLogger().log("Message " + messageId + " did not finish before the invocation timed out");
+            giveUp(attempt, "The image could not be processed in time", context);
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException ex) {
+            context.getLogger().log("Message " + messageId + " failed: " + ex.getCause());
+            return false;
+        }
+    }
+
+    // a message returned without a result of its own goes to the dead letter queue on its last attempt all the same
+    private void giveUp(Attempt attempt, String reason, Context context) {
+
+        if (!isLastAttempt(attempt.message) || !attempt.notified.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            notifyFailure(failure.apply(s3Event(attempt.message), reason), context);
+        } catch (Exception ex) {
+            context.getLogger().log("Message " + attempt.message.getMessageId() + " could not be reported: " + ex.getMessage());
+        }
+    }
+
+    private Map<String, Object> s3Event(SQSEvent.SQSMessage message) throws JsonProcessingException {
+        return objectMapper.readValue(message.getBody(), new TypeReference<>() {
+        });
+    }
+
+    private boolean isLastAttempt(SQSEvent.SQSMessage message) {
+
+        String receiveCount = message.getAttributes() == null ? null : message.getAttributes().get("ApproximateReceiveCount");
+        return receiveCount != null && Integer.parseInt(receiveCount) >= maxReceiveCount;
+    }
+
+    // the same details the state machine parses out of the failed task before notifying the owner
+    private void notifyFailure(Exception ex, Context context) {
+
+        if (!(ex instanceof ImageProcessingException)) {
+            return;
+        }
+
+        Map<String, Object> errorDetails;
+        try {
+            errorDetails = objectMapper.readValue(ex.getMessage(), new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            return;
+        }
+        if (errorDetails.get("email") == null) {
+            return;
+        }
+
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("email", errorDetails.get("email"));
+        notification.put("objectKey", errorDetails.get("objectKey"));
+        failureNotifier.handleRequest(notification, context);
+    }
+
+    private static int intFromEnvironment(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? Integer.parseInt(value) : defaultValue;
+    }
+
+    // a message on its way through a worker, the owner is told of its last failure once whichever side sees it first
+    private static final class Attempt {
+
+        private final SQSEvent.SQSMessage message;
+        private final AtomicBoolean notified = new AtomicBoolean();
+        private Future<Boolean> result;
+
+        private Attempt(SQSEvent.SQSMessage message) {
+            this.message = message;
+        }
+    }
+}
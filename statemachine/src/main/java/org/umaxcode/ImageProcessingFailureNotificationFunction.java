@@ -2,6 +2,9 @@ package org.umaxcode;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.umaxcode.aws.AwsClients;
+import org.umaxcode.aws.InitTimer;
+import org.umaxcode.aws.TimeoutProfile;
 import software.amazon.awssdk.services.sns.SnsClient;
 import software.amazon.awssdk.services.sns.model.MessageAttributeValue;
 import software.amazon.awssdk.services.sns.model.PublishRequest;
@@ -15,8 +18,10 @@ public class ImageProcessingFailureNotificationFunction implements RequestHandle
     private final SnsClient snsClient;
 
     public ImageProcessingFailureNotificationFunction() {
+        InitTimer initTimer = InitTimer.start("ImageProcessingFailureNotificationFunction");
         this.topicArn = System.getenv("SNS_NOTIFICATION_TOPIC_ARN");
-        this.snsClient = SnsClient.create();
+        this.snsClient = AwsClients.configure(SnsClient.builder(), TimeoutProfile.BACKGROUND).build();
+        initTimer.done();
     }
 
     @Override
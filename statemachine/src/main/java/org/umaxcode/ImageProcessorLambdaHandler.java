@@ -4,7 +4,16 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.umaxcode.aws.AwsClients;
+import org.umaxcode.aws.InitTimer;
+import org.umaxcode.aws.TimeoutProfile;
 import org.umaxcode.exception.ImageProcessingException;
+import org.umaxcode.image.DecodedImage;
+import org.umaxcode.image.DerivativeRenderer;
+import org.umaxcode.image.EncodedImage;
+import org.umaxcode.image.ImageDecoder;
+import org.umaxcode.image.ImageEncoder;
+import org.umaxcode.image.WatermarkEngine;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.core.sync.RequestBody;
@@ -13,26 +22,24 @@ import software.amazon.awssdk.services.apigatewaymanagementapi.model.GoneExcepti
 import software.amazon.awssdk.services.apigatewaymanagementapi.model.PostToConnectionRequest;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.presigner.S3Presigner;
-import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
-import java.net.URL;
-import java.text.SimpleDateFormat;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -41,22 +48,37 @@ public class ImageProcessorLambdaHandler implements RequestHandler<Map<String, O
 
     private final S3Client s3Client;
     private final DynamoDbClient dynamoDbClient;
+    private final ApiGatewayManagementApiClient apiGatewayManagementApiClient;
     private final String tableName;
     private final String websocketMessageEndpoint;
     private final String primaryBucketName;
-    private final S3Presigner s3Presigner;
     private final ObjectMapper objectMapper;
     private final String connectTableName;
+    private final String feedVersionTableName;
+    private final ImageDecoder imageDecoder;
+    private final WatermarkEngine watermarkEngine;
+    private final DerivativeRenderer derivativeRenderer;
+    private final String metricsNamespace;
 
     public ImageProcessorLambdaHandler() {
-        this.s3Presigner = S3Presigner.create();
-        this.s3Client = S3Client.create();
-        this.dynamoDbClient = DynamoDbClient.create();
+        InitTimer initTimer = InitTimer.start("ImageProcessorLambdaHandler");
+        this.s3Client = AwsClients.configure(S3Client.builder(), TimeoutProfile.BACKGROUND).build();
+        this.dynamoDbClient = AwsClients.configure(DynamoDbClient.builder(), TimeoutProfile.BACKGROUND).build();
         this.tableName = System.getenv("AWS_DYNAMODB_TABLE_NAME");
         this.primaryBucketName = System.getenv("AWS_S3_PRIMARY_BUCKET_NAME");
         this.objectMapper = new ObjectMapper();
         this.websocketMessageEndpoint = System.getenv("API_GATEWAY_WEBSOCKET_ENDPOINT");
         this.connectTableName = System.getenv("WEBSOCKET_CON_TABLE_NAME");
+        this.feedVersionTableName = System.getenv("FEED_VERSION_TABLE_NAME");
+        this.imageDecoder = ImageDecoder.fromEnvironment();
+        this.watermarkEngine = new WatermarkEngine();
+        this.derivativeRenderer = DerivativeRenderer.fromEnvironment(ImageEncoder.fromEnvironment());
+        this.metricsNamespace = Objects.requireNonNullElse(System.getenv("METRICS_NAMESPACE"), "PhotoBlog");
+        // built once, a client per message used to open a new connection pool every time
+        this.apiGatewayManagementApiClient = AwsClients.configure(ApiGatewayManagementApiClient.builder(), TimeoutProfile.INTERACTIVE)
+                .endpointOverride(URI.create(websocketMessageEndpoint))
+                .build();
+        initTimer.done();
     }
 
     @Override
@@ -78,62 +100,86 @@ public class ImageProcessorLambdaHandler implements RequestHandler<Map<String, O
 
         try {
 
-            // Add watermark to image, save processed image and return url
-            String processedImageUrl = processPhotoAndReturnUrl(s3ObjectResponse, bucketName, objectKey, context);
+            // Add watermark to image, save processed image and return its key
+            String processedObjectKey = processPhotoAndReturnObjectKey(s3ObjectResponse, bucketName, objectKey, context);
 
-            context.getLogger().log("Processed image URL: " + processedImageUrl);
+            context.getLogger().log("Processed image key: " + processedObjectKey);
 
             notifyClientOfSuccessfulImageProcessing(email);
 
             deleteImageFromStagingBucket(bucketName, objectKey);
 
         } catch (Exception ex) {
-
-            Map<String, String> errorDetails = new HashMap<>();
-            errorDetails.put("reason", ex.getMessage());
-            errorDetails.put("email", email);
-            errorDetails.put("objectKey", objectKey);
-            try {
-                throw new ImageProcessingException(objectMapper.writeValueAsString(errorDetails));
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException(e);
-            }
+            throw failure(ex.getMessage(), email, objectKey);
         }
         return null;
     }
 
-    private String processPhotoAndReturnUrl(ResponseInputStream<GetObjectResponse> s3ObjectResponse, String bucketName, String objectKey, Context context) throws IOException {
-
-        Map<String, String> metadata = s3ObjectResponse.response().metadata();
-        String email = metadata.get("email");
-        String firstName = metadata.get("firstname");
-        String lastName = metadata.get("lastname");
-        String fullName = firstName + " " + lastName;
+    /**
+     * The failure {@link #handleRequest} throws, for an attempt on {@code event} that was given up
+     * before it could throw one itself. The owner is read from the staged object's metadata.
+     */
+    ImageProcessingException failure(Map<String, Object> event, String reason) {
 
-        byte[] processedImageContent = addImageWatermark(s3ObjectResponse, fullName, context);
+        Map<String, Object> detail = (Map<String, Object>) event.get("detail");
+        String bucketName = (String) ((Map<String, Object>) detail.get("bucket")).get("name");
+        String objectKey = (String) ((Map<String, Object>) detail.get("object")).get("key");
 
-        String dynamicObjectKey = System.currentTimeMillis() + "-" + objectKey;
+        String email = null;
+        try {
+            email = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(objectKey).build())
+                    .metadata().get("email");
+        } catch (RuntimeException ex) {
+            // gone or unreadable, the failure is still reported without an owner to notify
+        }
+        return failure(reason, email, objectKey);
+    }
 
-        uploadImageToPrimaryBucket(processedImageContent, dynamicObjectKey, context);
+    // the details the state machine parses out of the failed task before notifying the owner
+    private ImageProcessingException failure(String reason, String email, String objectKey) {
 
-        String preSignedUrl = generatePreSignedUrl(dynamicObjectKey).toString();
-        storePhotoUrl(preSignedUrl, email, context);
-        return preSignedUrl;
+        Map<String, String> errorDetails = new HashMap<>();
+        errorDetails.put("reason", reason);
+        errorDetails.put("email", email);
+        errorDetails.put("objectKey", objectKey);
+        try {
+            return new ImageProcessingException(objectMapper.writeValueAsString(errorDetails));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
     }
 
-    private URL generatePreSignedUrl(String objectKey) {
+    private String processPhotoAndReturnObjectKey(ResponseInputStream<GetObjectResponse> s3ObjectResponse, String bucketName, String objectKey, Context context) throws IOException {
 
-        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                .bucket(primaryBucketName)
-                .key(objectKey)
-                .build();
+        Map<String, String> metadata = s3ObjectResponse.response().metadata();
+        String email = metadata.get("email");
+        String firstName = metadata.get("firstname");
+        String lastName = metadata.get("lastname");
+        String fullName = firstName + " " + lastName;
 
-        GetObjectPresignRequest preSignRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(Duration.ofHours(24))
-                .getObjectRequest(getObjectRequest)
-                .build();
+        Map<String, EncodedImage> processedImages = addImageWatermark(s3ObjectResponse, fullName, context);
+
+        // a BMP or TIFF upload comes back as PNG, the keys have to say so
+        // the staged object's upload time rather than the clock, so a retry of the same upload writes the same keys
+        Instant stagedAt = s3ObjectResponse.response().lastModified();
+        String dynamicObjectKey = (stagedAt != null ? stagedAt.toEpochMilli() : System.currentTimeMillis()) + "-" + objectKey;
+        String fullObjectKey = null;
+        Map<String, String> derivativeKeys = new LinkedHashMap<>();
+        for (Map.Entry<String, EncodedImage> processedImage : processedImages.entrySet()) {
+            EncodedImage image = processedImage.getValue();
+            if (DerivativeRenderer.FULL.equals(processedImage.getKey())) {
+                fullObjectKey = image.objectKey(dynamicObjectKey);
+                uploadImageToPrimaryBucket(image, fullObjectKey, context);
+            } else {
+                String derivativeKey = image.objectKey("derivatives/" + processedImage.getKey() + "/" + dynamicObjectKey);
+                uploadImageToPrimaryBucket(image, derivativeKey, context);
+                derivativeKeys.put(processedImage.getKey(), derivativeKey);
+            }
+        }
 
-        return s3Presigner.presignGetObject(preSignRequest).url();
+        // urls are signed when the photo is read, only the keys are persisted
+        storePhoto(fullObjectKey, derivativeKeys, email, context);
+        return fullObjectKey;
     }
 
     private ResponseInputStream<GetObjectResponse> getS3Object(String bucketName, String objectKey, Context context) {
@@ -152,105 +198,115 @@ public class ImageProcessorLambdaHandler implements RequestHandler<Map<String, O
     }
 
 
-    private byte[] addImageWatermark(ResponseInputStream<GetObjectResponse> s3ObjectResponse, String fullName, Context context) throws IOException {
-
-        BufferedImage originalImage = ImageIO.read(s3ObjectResponse);
-
-        // Create new watermarked image
-        BufferedImage watermarkedImage = new BufferedImage(originalImage.getWidth(),
-                originalImage.getHeight(), BufferedImage.TYPE_INT_ARGB);
-
-        Graphics2D g2d = watermarkedImage.createGraphics();
-        g2d.drawImage(originalImage, 0, 0, null);
-
-        // Set watermark properties
-        Font font = new Font("Arial", Font.BOLD, 25); // Smaller font size
-        g2d.setFont(font);
-        g2d.setColor(new Color(255, 0, 0, 216)); // Red with transparency
-        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+    private Map<String, EncodedImage> addImageWatermark(ResponseInputStream<GetObjectResponse> s3ObjectResponse, String fullName, Context context) throws IOException {
 
-        // Get the current date
-        String currentDate = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
-
-        // Create the watermark text
-        String line1 = "Owner: " + fullName;
-        String line2 = "Date of Upload: " + currentDate;
-
-        // Get the FontMetrics to calculate the width and height of the text
-        FontMetrics fontMetrics = g2d.getFontMetrics();
-        int textWidthLine1 = fontMetrics.stringWidth(line1);
-        int textWidthLine2 = fontMetrics.stringWidth(line2);
-        int textHeight = fontMetrics.getHeight();
-
-        // Calculate centered positions
-        int xLine1 = (originalImage.getWidth() - textWidthLine1) / 2; // Center horizontally
-        int xLine2 = (originalImage.getWidth() - textWidthLine2) / 2; // Center horizontally
-        int yCenter = originalImage.getHeight() / 2; // Center vertically
-        int yLine1 = yCenter - textHeight / 2; // Adjust first line
-        int yLine2 = yCenter + textHeight; // Adjust second line below
-
-        // Draw the text
-        g2d.drawString(line1, xLine1, yLine1);
-        g2d.drawString(line2, xLine2, yLine2);
-
-        g2d.dispose();
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(watermarkedImage, "png", outputStream);
-        context.getLogger().log("Watermark added to image at bottom-right");
-        return outputStream.toByteArray();
+        DecodedImage decoded;
+        try (s3ObjectResponse) {
+            decoded = imageDecoder.decode(s3ObjectResponse);
+        }
+        BufferedImage image = decoded.image();
+
+        // Get the current date, ISO formatted as yyyy-MM-dd
+        String currentDate = LocalDate.now().toString();
+
+        // every raster, full size and derivatives, gets the watermark at its own size before it is encoded.
+        // The cached text mask is blended straight into the raster, there is no second full size copy
+        long uploadedSize = s3ObjectResponse.response().contentLength();
+        Map<String, EncodedImage> rendered = derivativeRenderer.render(image, decoded.formatName(), uploadedSize,
+                raster -> watermarkEngine.apply(raster, "Owner: " + fullName, "Date of Upload: " + currentDate));
+        context.getLogger().log("Watermark added to image, rendered " + rendered.keySet());
+        recordSizeRatio(rendered.get(DerivativeRenderer.FULL), uploadedSize, context);
+        return rendered;
     }
 
-    private void uploadImageToPrimaryBucket(byte[] imageContent, String objectKey, Context context) {
+    // an embedded metric format line, CloudWatch turns it into metrics per output format
+    private void recordSizeRatio(EncodedImage encoded, long uploadedSize, Context context) throws JsonProcessingException {
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("_aws", Map.of(
+                "Timestamp", System.currentTimeMillis(),
+                "CloudWatchMetrics", List.of(Map.of(
+                        "Namespace", metricsNamespace,
+                        "Dimensions", List.of(List.of("Format")),
+                        "Metrics", List.of(
+                                Map.of("Name", "EncodedSize", "Unit", "Bytes"),
+                                Map.of("Name", "SizeRatio", "Unit", "None"))))));
+        document.put("Format", encoded.formatName());
+        document.put("EncodedSize", encoded.content().length);
+        document.put("SizeRatio", uploadedSize > 0 ? (double) encoded.content().length / uploadedSize : 0);
+        context.getLogger().log(objectMapper.writeValueAsString(document));
+    }
 
-        String extension = getImageExtension(objectKey);
-        String contentType = String.format("image/%s", extension);
+    private void uploadImageToPrimaryBucket(EncodedImage image, String objectKey, Context context) {
 
         // Upload the image back to S3
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                 .bucket(primaryBucketName)
                 .key(objectKey)
-                .contentType(contentType)
+                .contentType(image.contentType())
                 .build();
 
-        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(imageContent));
+        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(image.content()));
 
         context.getLogger().log("Watermarked image uploaded to: " + primaryBucketName + "/" + objectKey);
     }
 
-    private String getImageExtension(String objectKey) {
-
-        Set<String> VALID_IMAGE_EXTENSIONS = Set.of("jpeg", "jpg", "png", "gif", "bmp", "webp", "tiff", "svg");
-        if (objectKey == null) {
-            throw new ImageProcessingException("No object key");
-        }
-
-        String extension = objectKey.substring(objectKey.lastIndexOf('.') + 1).toLowerCase();
-
-        if (VALID_IMAGE_EXTENSIONS.contains(extension)) {
-            return extension; // Valid image extension
-        }
-
-        throw new ImageProcessingException("Unsupported image extension: " + extension);
-    }
-
-    private void storePhotoUrl(String photoUrl, String owner, Context context) {
+    private void storePhoto(String objectKey, Map<String, String> derivativeKeys, String owner, Context context) {
 
         Map<String, AttributeValue> item = new HashMap<>();
-        item.put("picId", AttributeValue.builder().s(UUID.randomUUID().toString()).build());
-        item.put("picUrl", AttributeValue.builder().s(photoUrl).build());
+        // derived from the key, so the item of a retried upload is the one an earlier attempt may have stored
+        String picId = UUID.nameUUIDFromBytes((primaryBucketName + "/" + objectKey).getBytes(StandardCharsets.UTF_8)).toString();
+        item.put("picId", AttributeValue.builder().s(picId).build());
+        item.put("objectKey", AttributeValue.builder().s(objectKey).build());
+        if (!derivativeKeys.isEmpty()) {
+            Map<String, AttributeValue> derivatives = new HashMap<>();
+            derivativeKeys.forEach((name, key) -> derivatives.put(name, AttributeValue.builder().s(key).build()));
+            item.put("derivatives", AttributeValue.builder().m(derivatives).build());
+        }
         item.put("owner", AttributeValue.builder().s(owner).build());
         item.put("isPlacedInRecycleBin", AttributeValue.builder().n("0").build());
         item.put("dateOfUpload", AttributeValue.builder().s(LocalDateTime.now().toString()).build());
-        item.put("preSignedUrlGenDate", AttributeValue.builder().s(LocalDateTime.now().toString()).build());
 
         PutItemRequest putRequest = PutItemRequest.builder()
                 .tableName(tableName)
                 .item(item)
+                .conditionExpression("attribute_not_exists(picId)")
                 .build();
 
-        dynamoDbClient.putItem(putRequest);
+        try {
+            dynamoDbClient.putItem(putRequest);
+        } catch (ConditionalCheckFailedException ex) {
+            // an attempt that timed out still finished, or a retry raced it, the photo is already in the feed
+            context.getLogger().log("Photo " + picId + " was already stored by an earlier attempt");
+            return;
+        }
         context.getLogger().log("Photo stored in dynamoDB");
+        recordFeedChange(owner, context);
+    }
+
+    // bumps the counters the API turns into feed ETags, so clients holding the old feed see the new photo
+    private void recordFeedChange(String owner, Context context) {
+
+        if (feedVersionTableName == null || feedVersionTableName.isBlank()) {
+            return;
+        }
+
+        for (String scope : new String[]{"owner#" + owner, "all"}) {
+            UpdateItemRequest updateRequest = UpdateItemRequest.builder()
+                    .tableName(feedVersionTableName)
+                    .key(Map.of("scope", AttributeValue.builder().s(scope).build()))
+                    .updateExpression("ADD version :one")
+                    .expressionAttributeValues(Map.of(
+                            ":one", AttributeValue.builder().n("1").build()
+                    ))
+                    .build();
+            try {
+                dynamoDbClient.updateItem(updateRequest);
+            } catch (Exception ex) {
+                // the photo is stored, a stale tag only lasts until it expires
+                context.getLogger().log("Could not record feed change: " + ex.getMessage());
+            }
+        }
     }
 
     private void notifyClientOfSuccessfulImageProcessing(String email) throws JsonProcessingException {
@@ -277,10 +333,6 @@ public class ImageProcessorLambdaHandler implements RequestHandler<Map<String, O
 
             String connectionId = connection.get("connectionId").s();
 
-            ApiGatewayManagementApiClient client = ApiGatewayManagementApiClient.builder()
-                    .endpointOverride(URI.create(websocketMessageEndpoint))
-                    .build();
-
             Map<String, String> response = new HashMap<>();
             response.put("message", "Image processed successfully");
 
@@ -290,7 +342,7 @@ public class ImageProcessorLambdaHandler implements RequestHandler<Map<String, O
                     .build();
 
             try {
-                client.postToConnection(postRequest);
+                apiGatewayManagementApiClient.postToConnection(postRequest);
                 System.out.println("Message sent successfully!");
             } catch (GoneException e) {
                 System.err.println("Connection is stale: ");
@@ -4,6 +4,9 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2WebSocketEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2WebSocketResponse;
+import org.umaxcode.aws.AwsClients;
+import org.umaxcode.aws.InitTimer;
+import org.umaxcode.aws.TimeoutProfile;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
@@ -18,8 +21,10 @@ public class WebSocketConDisLambdaHandler implements RequestHandler<APIGatewayV2
     private final DynamoDbClient dynamoDbClient;
 
     public WebSocketConDisLambdaHandler() {
-        this.dynamoDbClient = DynamoDbClient.create();
+        InitTimer initTimer = InitTimer.start("WebSocketConDisLambdaHandler");
+        this.dynamoDbClient = AwsClients.configure(DynamoDbClient.builder(), TimeoutProfile.INTERACTIVE).build();
         this.websocketConnectionTable = System.getenv("WEBSOCKET_CONNECTION_TABLE");
+        initTimer.done();
     }
 
 
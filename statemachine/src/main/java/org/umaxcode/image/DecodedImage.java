@@ -0,0 +1,9 @@
+package org.umaxcode.image;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A decoded upload together with the format its reader recognised, e.g. "JPEG" or "png".
+ */
+public record DecodedImage(BufferedImage image, String formatName) {
+}
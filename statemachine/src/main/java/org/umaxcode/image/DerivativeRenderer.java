@@ -0,0 +1,100 @@
+package org.umaxcode.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Encodes the full size image and every configured derivative from one decoded raster, each on
+ * its own task. Scaling and encoding are CPU bound and independent, so they run side by side on
+ * whatever cores the function's memory setting buys. Derivatives are scaled from the clean raster
+ * and watermarked at their own size, text scaled down with the image would not be legible.
+ */
+public class DerivativeRenderer {
+
+    public static final String FULL = "full";
+
+    private final List<DerivativeSpec> specs;
+    private final ImageEncoder imageEncoder;
+    private final ForkJoinPool pool;
+
+    public DerivativeRenderer(List<DerivativeSpec> specs, ImageEncoder imageEncoder, ForkJoinPool pool) {
+        this.specs = specs;
+        this.imageEncoder = imageEncoder;
+        this.pool = pool;
+    }
+
+    /**
+     * Derivatives from IMAGE_DERIVATIVES (default {@code thumbnail:320}, the one feeds show) on a
+     * pool with one worker per available processor.
+     */
+    public static DerivativeRenderer fromEnvironment(ImageEncoder imageEncoder) {
+        String specs = System.getenv("IMAGE_DERIVATIVES");
+        return new DerivativeRenderer(DerivativeSpec.parse(specs != null ? specs : "thumbnail:320"),
+                imageEncoder, new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * The encoded full size image under {@link #FULL}, followed by every derivative smaller than
+     * it, each passed through {@code watermark} first. A derivative the image already fits in is
+     * left out, readers fall back to the full image.
+     */
+    public Map<String, EncodedImage> render(BufferedImage image, String format, long sizeHint,
+                                            Consumer<BufferedImage> watermark) throws IOException {
+
+        Map<String, ForkJoinTask<BufferedImage>> scaling = new LinkedHashMap<>();
+        for (DerivativeSpec spec : specs) {
+            scaling.put(spec.name(), pool.submit(() -> ImageScaler.scaleToFit(image, spec.maxDimension())));
+        }
+        Map<String, BufferedImage> scaled = new LinkedHashMap<>();
+        for (Map.Entry<String, ForkJoinTask<BufferedImage>> task : scaling.entrySet()) {
+            BufferedImage derivative = await(task.getValue());
+            if (derivative != null) {
+                scaled.put(task.getKey(), derivative);
+            }
+        }
+
+        // nothing reads the decoded raster any more, so it takes its watermark in place
+        Map<String, ForkJoinTask<EncodedImage>> tasks = new LinkedHashMap<>();
+        tasks.put(FULL, pool.submit(() -> {
+            watermark.accept(image);
+            return imageEncoder.encode(image, format, sizeHint);
+        }));
+        for (Map.Entry<String, BufferedImage> derivative : scaled.entrySet()) {
+            tasks.put(derivative.getKey(), pool.submit(() -> {
+                watermark.accept(derivative.getValue());
+                // scaled output is a fraction of the upload, the hint only avoids the first few buffer copies
+                return imageEncoder.encode(derivative.getValue(), format, sizeHint / 8);
+            }));
+        }
+
+        Map<String, EncodedImage> rendered = new LinkedHashMap<>();
+        for (Map.Entry<String, ForkJoinTask<EncodedImage>> task : tasks.entrySet()) {
+            rendered.put(task.getKey(), await(task.getValue()));
+        }
+        return rendered;
+    }
+
+    private static <T> T await(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.umaxcode.image;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A downscaled copy to produce next to the full size image, fitted inside a square of
+ * {@code maxDimension} pixels.
+ */
+public record DerivativeSpec(String name, int maxDimension) {
+
+    /**
+     * Parses a list such as {@code thumbnail:320,medium:1280}. A blank list means no derivatives.
+     * Names are the keys the rendered images are stored under, so {@link DerivativeRenderer#FULL}
+     * and names given twice are rejected.
+     */
+    public static List<DerivativeSpec> parse(String specs) {
+
+        List<DerivativeSpec> parsed = new ArrayList<>();
+        if (specs == null || specs.isBlank()) {
+            return parsed;
+        }
+
+        for (String spec : specs.split(",")) {
+            String[] parts = spec.trim().split(":");
+            if (parts.length != 2 || parts[0].isBlank()) {
+                throw new IllegalArgumentException("Derivative must look like name:maxDimension, was " + spec);
+            }
+            int maxDimension = Integer.parseInt(parts[1].trim());
+            if (maxDimension < 1) {
+                throw new IllegalArgumentException("Derivative " + parts[0] + " needs a positive size");
+            }
+            String name = parts[0].trim();
+            if (name.equals(DerivativeRenderer.FULL)) {
+                throw new IllegalArgumentException("Derivative name " + name + " is reserved for the full size image");
+            }
+            if (parsed.stream().anyMatch(derivative -> derivative.name().equals(name))) {
+                throw new IllegalArgumentException("Derivative " + name + " is given more than once");
+            }
+            parsed.add(new DerivativeSpec(name, maxDimension));
+        }
+        return parsed;
+    }
+}
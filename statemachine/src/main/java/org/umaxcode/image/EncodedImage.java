@@ -0,0 +1,21 @@
+package org.umaxcode.image;
+
+import java.util.List;
+
+/**
+ * Encoded image bytes with the content type and file suffixes of the format they were written in.
+ */
+public record EncodedImage(byte[] content, String formatName, String contentType, List<String> fileSuffixes) {
+
+    /**
+     * The key with its extension swapped for the written format when it does not already match.
+     */
+    public String objectKey(String key) {
+        int dot = key.lastIndexOf('.');
+        String extension = dot < 0 ? "" : key.substring(dot + 1).toLowerCase();
+        if (fileSuffixes.contains(extension)) {
+            return key;
+        }
+        return (dot < 0 ? key : key.substring(0, dot)) + "." + fileSuffixes.get(0);
+    }
+}
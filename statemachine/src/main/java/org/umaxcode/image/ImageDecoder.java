@@ -0,0 +1,66 @@
+package org.umaxcode.image;
+
+import org.umaxcode.exception.ImageProcessingException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Decodes an upload once its header shows the raster fits in memory. {@code ImageIO.read} would
+ * start allocating a 100 MP image before finding out, and the function dies with an
+ * OutOfMemoryError instead of failing the upload cleanly.
+ */
+public class ImageDecoder {
+
+    // a decoded pixel takes up to 4 bytes, the rest of the heap goes to the encoded output and the SDK
+    private static final int HEAP_SHARE = 16;
+
+    private final long maxPixels;
+
+    public ImageDecoder(long maxPixels) {
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Limit from MAX_IMAGE_PIXELS, or a share of the heap when it is not set.
+     */
+    public static ImageDecoder fromEnvironment() {
+        String maxPixels = System.getenv("MAX_IMAGE_PIXELS");
+        return new ImageDecoder(maxPixels != null && !maxPixels.isBlank()
+                ? Long.parseLong(maxPixels)
+                : Runtime.getRuntime().maxMemory() / HEAP_SHARE);
+    }
+
+    public long maxPixels() {
+        return maxPixels;
+    }
+
+    public DecodedImage decode(InputStream content) throws IOException {
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new ImageProcessingException("Unsupported image format");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new ImageProcessingException("Image of " + reader.getWidth(0) + "x" + reader.getHeight(0)
+                            + " is larger than the " + maxPixels + " pixels that can be processed");
+                }
+
+                return new DecodedImage(reader.read(0), reader.getFormatName());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
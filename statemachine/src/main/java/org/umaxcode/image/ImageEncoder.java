@@ -0,0 +1,101 @@
+package org.umaxcode.image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.ImageWriterSpi;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Writes a processed image back in the format it was uploaded in. JPEG quality and the PNG deflate
+ * level are configurable, BMP, TIFF and the other lossless formats ImageIO reads are written as
+ * PNG, which is far smaller and which every browser shows.
+ */
+public class ImageEncoder {
+
+    private static final Set<String> PRESERVED_FORMATS = Set.of("jpeg", "png", "gif");
+    private static final String FALLBACK_FORMAT = "png";
+    private static final int MIN_BUFFER_SIZE = 8 * 1024;
+
+    private final float jpegQuality;
+    private final int pngCompressionLevel;
+
+    public ImageEncoder(float jpegQuality, int pngCompressionLevel) {
+        if (jpegQuality < 0 || jpegQuality > 1) {
+            throw new IllegalArgumentException("JPEG quality must be between 0 and 1, was " + jpegQuality);
+        }
+        if (pngCompressionLevel < 0 || pngCompressionLevel > 9) {
+            throw new IllegalArgumentException("PNG compression level must be between 0 and 9, was " + pngCompressionLevel);
+        }
+        this.jpegQuality = jpegQuality;
+        this.pngCompressionLevel = pngCompressionLevel;
+    }
+
+    /**
+     * Settings from JPEG_QUALITY (default 0.85) and PNG_COMPRESSION_LEVEL (default 6).
+     */
+    public static ImageEncoder fromEnvironment() {
+        String jpegQuality = System.getenv("JPEG_QUALITY");
+        String pngCompressionLevel = System.getenv("PNG_COMPRESSION_LEVEL");
+        return new ImageEncoder(
+                jpegQuality != null && !jpegQuality.isBlank() ? Float.parseFloat(jpegQuality) : 0.85f,
+                pngCompressionLevel != null && !pngCompressionLevel.isBlank() ? Integer.parseInt(pngCompressionLevel) : 6);
+    }
+
+    /**
+     * @param sourceFormat format name reported by the reader that decoded the image
+     * @param sizeHint     expected size of the output, usually the size of the upload
+     */
+    public EncodedImage encode(BufferedImage image, String sourceFormat, long sizeHint) throws IOException {
+
+        String format = sourceFormat == null ? FALLBACK_FORMAT : sourceFormat.toLowerCase(Locale.ROOT);
+        if (!PRESERVED_FORMATS.contains(format)) {
+            format = FALLBACK_FORMAT;
+        }
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + format);
+        }
+        ImageWriter writer = writers.next();
+        // read before dispose, a disposed writer is not to be used again
+        ImageWriterSpi provider = writer.getOriginatingProvider();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.min(Math.max(sizeHint, MIN_BUFFER_SIZE),
+                Integer.MAX_VALUE - 8));
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), writeParam(writer, format));
+        } finally {
+            writer.dispose();
+        }
+
+        return new EncodedImage(output.toByteArray(), format, provider.getMIMETypes()[0],
+                List.of(provider.getFileSuffixes()));
+    }
+
+    private ImageWriteParam writeParam(ImageWriter writer, String format) {
+
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (!param.canWriteCompressed() || "gif".equals(format)) {
+            return param;
+        }
+
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        if ("jpeg".equals(format)) {
+            param.setCompressionQuality(jpegQuality);
+        } else {
+            // the PNG writer turns quality q into deflate level 9 - round(9q)
+            param.setCompressionQuality(1f - pngCompressionLevel / 9f);
+        }
+        return param;
+    }
+}
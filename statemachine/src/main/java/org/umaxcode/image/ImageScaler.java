@@ -0,0 +1,49 @@
+package org.umaxcode.image;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Downscales in steps of at most half the size. A single bilinear step from a 6000 pixel wide
+ * photo down to 320 only samples a few source pixels per target pixel and aliases badly, halving
+ * repeatedly lets every source pixel contribute at about the cost of one extra step.
+ */
+public final class ImageScaler {
+
+    private ImageScaler() {
+    }
+
+    /**
+     * A copy fitted inside {@code maxDimension} x {@code maxDimension}, or {@code null} when the
+     * image already fits and there is nothing to gain.
+     */
+    public static BufferedImage scaleToFit(BufferedImage source, int maxDimension) {
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (Math.max(width, height) <= maxDimension) {
+            return null;
+        }
+
+        double scale = (double) maxDimension / Math.max(width, height);
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D g2d = next.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.drawImage(current, 0, 0, width, height, null);
+            g2d.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+}
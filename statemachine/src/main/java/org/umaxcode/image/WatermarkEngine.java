@@ -0,0 +1,80 @@
+package org.umaxcode.image;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the owner and upload date across the middle of a decoded image, in place, so no second
+ * full size raster is ever allocated. The text is 25 pt unless the longer line would not fit
+ * across the image, thumbnails get it as large as fits. It is rendered once per owner, date and
+ * font size into a {@link WatermarkMask} that warm invocations reuse.
+ */
+public class WatermarkEngine {
+
+    // a mask is a few KB, this holds every owner a warm container sees in a day many times over
+    private static final int MAX_CACHED_MASKS = 256;
+    private static final int FONT_SIZE = 25;
+    // smaller than this the text is no longer readable, it is cut off at the edges instead
+    private static final int MIN_FONT_SIZE = 9;
+    // share of the image width the longer line may take
+    private static final float MAX_TEXT_WIDTH = 0.9f;
+    private static final Color TEXT_COLOR = new Color(255, 0, 0, 216); // Red with transparency
+    private static final float TEXT_COMPOSITE = 0.5f;
+    // antialiased and bold glyphs can reach slightly past the metrics
+    private static final int MASK_PADDING = 2;
+
+    private final Map<Integer, FontMetrics> fontMetrics = new ConcurrentHashMap<>();
+    private final Map<MaskKey, WatermarkMask> masks = new ConcurrentHashMap<>();
+
+    public void apply(BufferedImage image, String ownerLine, String dateLine) {
+
+        FontMetrics metrics = fontMetrics(fontSize(image.getWidth(), ownerLine, dateLine));
+        WatermarkMask mask = mask(ownerLine, dateLine, metrics);
+
+        // centered horizontally, with the owner line's baseline just above the middle
+        int left = (image.getWidth() - mask.width()) / 2;
+        int top = image.getHeight() / 2 - metrics.getHeight() / 2 - metrics.getAscent() - MASK_PADDING;
+        mask.applyTo(image, left, top);
+    }
+
+    private int fontSize(int imageWidth, String ownerLine, String dateLine) {
+
+        FontMetrics fullSize = fontMetrics(FONT_SIZE);
+        int textWidth = Math.max(1, Math.max(fullSize.stringWidth(ownerLine), fullSize.stringWidth(dateLine)));
+        int fits = (int) (FONT_SIZE * MAX_TEXT_WIDTH * imageWidth / textWidth);
+        return Math.max(MIN_FONT_SIZE, Math.min(FONT_SIZE, fits));
+    }
+
+    private FontMetrics fontMetrics(int fontSize) {
+        return fontMetrics.computeIfAbsent(fontSize, size -> {
+            Graphics2D scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+            try {
+                return scratch.getFontMetrics(new Font("Arial", Font.BOLD, size));
+            } finally {
+                scratch.dispose();
+            }
+        });
+    }
+
+    private WatermarkMask mask(String ownerLine, String dateLine, FontMetrics metrics) {
+
+        Font font = metrics.getFont();
+        MaskKey key = new MaskKey(ownerLine, dateLine, font.getSize());
+        WatermarkMask mask = masks.get(key);
+        if (mask != null) {
+            return mask;
+        }
+
+        // yesterday's dates are never asked for again, starting over is cheaper than tracking use
+        if (masks.size() >= MAX_CACHED_MASKS) {
+            masks.clear();
+        }
+        return masks.computeIfAbsent(key, k ->
+                WatermarkMask.render(ownerLine, dateLine, font, metrics, TEXT_COLOR, TEXT_COMPOSITE, MASK_PADDING));
+    }
+
+    private record MaskKey(String ownerLine, String dateLine, int fontSize) {
+    }
+}
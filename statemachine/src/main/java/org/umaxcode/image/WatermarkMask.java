@@ -0,0 +1,246 @@
+package org.umaxcode.image;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.Arrays;
+
+/**
+ * The watermark text rendered once into a coverage mask, already weighted by the watermark's
+ * alpha. Applying it is a loop over the covered pixels that blends the watermark colour straight
+ * into the image's own {@code int[]} or {@code byte[]} raster, without Java2D. That only pays off
+ * for the opaque 8 bit RGB layouts JPEG decoding and scaling produce, packed {@code int} RGB and
+ * 3 byte BGR. Images with alpha, palettes or other layouts get the text drawn with Java2D as
+ * before, which is as fast or faster there.
+ */
+final class WatermarkMask {
+
+    // mask weights are fixed point, 256 replaces the pixel entirely
+    private static final int ONE = 256;
+
+    private final int width;
+    private final int height;
+    private final int rgb;
+    private final int[] weights;
+    // per row, pairs of [start, end) columns with a non-zero weight, most of the mask is empty
+    private final int[][] rowSpans;
+    private final Fallback fallback;
+
+    private WatermarkMask(int width, int height, int rgb, int[] weights, Fallback fallback) {
+        this.width = width;
+        this.height = height;
+        this.rgb = rgb;
+        this.weights = weights;
+        this.fallback = fallback;
+        this.rowSpans = new int[height][];
+        for (int row = 0; row < height; row++) {
+            rowSpans[row] = spans(weights, row * width, width);
+        }
+    }
+
+    /**
+     * Draws the lines the way the watermark shows them, the date one and a half lines under the
+     * owner, into a grey image whose values become the coverage.
+     */
+    static WatermarkMask render(String ownerLine, String dateLine, Font font, FontMetrics fontMetrics,
+                                Color color, float composite, int padding) {
+
+        int ownerWidth = fontMetrics.stringWidth(ownerLine);
+        int dateWidth = fontMetrics.stringWidth(dateLine);
+        int textHeight = fontMetrics.getHeight();
+        int width = Math.max(ownerWidth, dateWidth) + 2 * padding;
+        int ownerBaseline = padding + fontMetrics.getAscent();
+        int dateBaseline = ownerBaseline + textHeight + textHeight / 2;
+        int height = dateBaseline + fontMetrics.getDescent() + padding;
+
+        BufferedImage coverage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2d = coverage.createGraphics();
+        try {
+            g2d.setFont(font);
+            g2d.setColor(Color.WHITE);
+            g2d.drawString(ownerLine, (width - ownerWidth) / 2, ownerBaseline);
+            g2d.drawString(dateLine, (width - dateWidth) / 2, dateBaseline);
+        } finally {
+            g2d.dispose();
+        }
+
+        float alpha = color.getAlpha() / 255f * composite;
+        byte[] gray = ((DataBufferByte) coverage.getRaster().getDataBuffer()).getData();
+        int[] weights = new int[width * height];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Math.round((gray[i] & 0xff) / 255f * alpha * ONE);
+        }
+        Fallback fallback = new Fallback(ownerLine, dateLine, font, color, composite,
+                (width - ownerWidth) / 2, ownerBaseline, (width - dateWidth) / 2, dateBaseline);
+        return new WatermarkMask(width, height, color.getRGB() & 0xffffff, weights, fallback);
+    }
+
+    private static int[] spans(int[] weights, int rowStart, int width) {
+
+        int[] spans = new int[width + 1];
+        int count = 0;
+        int column = 0;
+        while (column < width) {
+            while (column < width && weights[rowStart + column] == 0) {
+                column++;
+            }
+            if (column == width) {
+                break;
+            }
+            spans[count++] = column;
+            while (column < width && weights[rowStart + column] != 0) {
+                column++;
+            }
+            spans[count++] = column;
+        }
+        return Arrays.copyOf(spans, count);
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    /**
+     * Blends the watermark into the image with the mask's top left corner at (left, top).
+     */
+    void applyTo(BufferedImage image, int left, int top) {
+
+        Rectangle area = new Rectangle(left, top, width, height)
+                .intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (area.isEmpty()) {
+            return;
+        }
+
+        WritableRaster raster = image.getRaster();
+        ColorModel colorModel = image.getColorModel();
+        boolean opaqueEightBitRgb = !colorModel.hasAlpha() && colorModel.getColorSpace().isCS_sRGB()
+                && hasEightBitComponents(colorModel);
+
+        if (opaqueEightBitRgb
+                && raster.getDataBuffer() instanceof DataBufferInt buffer
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel
+                && colorModel instanceof DirectColorModel) {
+            blendPacked(buffer, sampleModel, raster, area, left, top);
+            return;
+        }
+
+        if (opaqueEightBitRgb
+                && raster.getDataBuffer() instanceof DataBufferByte buffer
+                && raster.getSampleModel() instanceof PixelInterleavedSampleModel sampleModel
+                && colorModel instanceof ComponentColorModel
+                && sampleModel.getNumBands() == 3) {
+            blendInterleaved(buffer, sampleModel, raster, area, left, top);
+            return;
+        }
+
+        // alpha, indexed, grey and 16 bit images, where Java2D's own glyph loops match or beat a blended sprite
+        fallback.draw(image, left, top);
+    }
+
+    private void blendPacked(DataBufferInt buffer, SinglePixelPackedSampleModel sampleModel, WritableRaster raster,
+                             Rectangle area, int left, int top) {
+
+        int[] data = buffer.getData();
+        int[] shifts = sampleModel.getBitOffsets();
+        int redShift = shifts[0];
+        int greenShift = shifts[1];
+        int blueShift = shifts[2];
+        int srcRed = (rgb >> 16) & 0xff;
+        int srcGreen = (rgb >> 8) & 0xff;
+        int srcBlue = rgb & 0xff;
+        int translateX = raster.getSampleModelTranslateX();
+        int translateY = raster.getSampleModelTranslateY();
+
+        for (int y = area.y; y < area.y + area.height; y++) {
+            int[] spans = rowSpans[y - top];
+            int maskRow = (y - top) * width - left;
+            int rowStart = buffer.getOffset() + sampleModel.getOffset(-translateX, y - translateY);
+            for (int span = 0; span < spans.length; span += 2) {
+                int from = Math.max(spans[span] + left, area.x);
+                int to = Math.min(spans[span + 1] + left, area.x + area.width);
+                for (int x = from; x < to; x++) {
+                    int pixel = rowStart + x;
+                    int weight = weights[maskRow + x];
+                    int value = data[pixel];
+                    int red = (value >>> redShift) & 0xff;
+                    int green = (value >>> greenShift) & 0xff;
+                    int blue = (value >>> blueShift) & 0xff;
+                    data[pixel] = over(srcRed, red, weight) << redShift
+                            | over(srcGreen, green, weight) << greenShift
+                            | over(srcBlue, blue, weight) << blueShift;
+                }
+            }
+        }
+    }
+
+    private void blendInterleaved(DataBufferByte buffer, PixelInterleavedSampleModel sampleModel, WritableRaster raster,
+                                  Rectangle area, int left, int top) {
+
+        byte[] data = buffer.getData();
+        int pixelStride = sampleModel.getPixelStride();
+        int[] bandOffsets = sampleModel.getBandOffsets();
+        int redOffset = bandOffsets[0];
+        int greenOffset = bandOffsets[1];
+        int blueOffset = bandOffsets[2];
+        int srcRed = (rgb >> 16) & 0xff;
+        int srcGreen = (rgb >> 8) & 0xff;
+        int srcBlue = rgb & 0xff;
+        int translateX = raster.getSampleModelTranslateX();
+        int translateY = raster.getSampleModelTranslateY();
+
+        for (int y = area.y; y < area.y + area.height; y++) {
+            int[] spans = rowSpans[y - top];
+            int maskRow = (y - top) * width - left;
+            // getOffset points at band 0, which is not the first byte of the pixel
+            int rowStart = buffer.getOffset() + sampleModel.getOffset(-translateX, y - translateY) - bandOffsets[0];
+            for (int span = 0; span < spans.length; span += 2) {
+                int from = Math.max(spans[span] + left, area.x);
+                int to = Math.min(spans[span + 1] + left, area.x + area.width);
+                for (int x = from; x < to; x++) {
+                    int pixel = rowStart + x * pixelStride;
+                    int weight = weights[maskRow + x];
+                    int red = data[pixel + redOffset] & 0xff;
+                    int green = data[pixel + greenOffset] & 0xff;
+                    int blue = data[pixel + blueOffset] & 0xff;
+                    data[pixel + redOffset] = (byte) over(srcRed, red, weight);
+                    data[pixel + greenOffset] = (byte) over(srcGreen, green, weight);
+                    data[pixel + blueOffset] = (byte) over(srcBlue, blue, weight);
+                }
+            }
+        }
+    }
+
+    // source over an opaque pixel
+    private static int over(int source, int destination, int weight) {
+        return (source * weight + destination * (ONE - weight) + ONE / 2) >> 8;
+    }
+
+    private static boolean hasEightBitComponents(ColorModel colorModel) {
+        for (int size : colorModel.getComponentSize()) {
+            if (size != 8) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Fallback(String ownerLine, String dateLine, Font font, Color color, float composite,
+                            int ownerX, int ownerBaseline, int dateX, int dateBaseline) {
+
+        void draw(BufferedImage image, int left, int top) {
+            Graphics2D g2d = image.createGraphics();
+            try {
+                g2d.setFont(font);
+                g2d.setColor(color);
+                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, composite));
+                g2d.drawString(ownerLine, left + ownerX, top + ownerBaseline);
+                g2d.drawString(dateLine, left + dateX, top + dateBaseline);
+            } finally {
+                g2d.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.umaxcode;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import org.junit.jupiter.api.Test;
+import org.umaxcode.exception.ImageProcessingException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageBatchProcessorLambdaHandlerTest {
+
+    private static final int MAX_RECEIVE_COUNT = 3;
+
+    private final List<Map<String, Object>> notifications = Collections.synchronizedList(new ArrayList<>());
+    private final RequestHandler<Map<String, Object>, Void> notifier = (notification, context) -> {
+        notifications.add(notification);
+        return null;
+    };
+
+    @Test
+    public void handleRequest_mixedResults_reportsOnlyTheFailures() {
+        ImageBatchProcessorLambdaHandler handler = handler(4, (event, context) -> {
+            switch (key(event)) {
+                case "broken.png" -> throw failure(key(event));
+                case "gone.png" -> throw NoSuchKeyException.builder().message("The specified key does not exist.").build();
+                default -> {
+                    return null;
+                }
+            }
+        });
+
+        SQSBatchResponse response = handler.handleRequest(
+                event(message("1", "ok.png", 1), message("2", "broken.png", 1), message("3", "gone.png", 1), message("4", "fine.png", 1)),
+                new FakeContext(60_000));
+
+        assertEquals(List.of("2"), failedIds(response));
+        assertTrue(notifications.isEmpty());
+    }
+
+    @Test
+    public void handleRequest_failureOnLastAttempt_notifiesTheOwner() {
+        ImageBatchProcessorLambdaHandler handler = handler(2, (event, context) -> {
+            throw failure(key(event));
+        });
+
+        SQSBatchResponse response = handler.handleRequest(
+                event(message("1", "early.png", MAX_RECEIVE_COUNT - 1), message("2", "last.png", MAX_RECEIVE_COUNT)),
+                new FakeContext(60_000));
+
+        assertEquals(List.of("1", "2"), failedIds(response));
+        assertEquals(List.of(Map.of("email", "jane@example.com", "objectKey", "last.png")), notifications);
+    }
+
+    @Test
+    public void handleRequest_timeoutOnLastAttempt_notifiesTheOwnerOnce() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        ImageBatchProcessorLambdaHandler handler = handler(1, (event, context) -> {
+            try {
+                release.await();
+                throw failure(key(event));
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            } finally {
+                finished.countDown();
+            }
+        });
+
+        SQSBatchResponse response = handler.handleRequest(event(message("1", "slow.png", MAX_RECEIVE_COUNT)), new FakeContext(2_050));
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("1"), failedIds(response));
+        assertEquals(List.of(Map.of("email", "jane@example.com", "objectKey", "slow.png")), notifications);
+    }
+
+    @Test
+    public void handleRequest_workerStillBusy_returnsWhatDoesNotFit() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        ImageBatchProcessorLambdaHandler handler = handler(2, (event, context) -> {
+            processed.add(key(event));
+            if (key(event).equals("stuck.png")) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            return null;
+        });
+
+        handler.handleRequest(event(message("1", "stuck.png", 1)), new FakeContext(2_050));
+        SQSBatchResponse response = handler.handleRequest(
+                event(message("2", "a.png", 1), message("3", "b.png", MAX_RECEIVE_COUNT)), new FakeContext(60_000));
+        release.countDown();
+
+        assertEquals(List.of("3"), failedIds(response));
+        assertEquals(List.of("stuck.png", "a.png"), processed);
+        assertEquals(List.of(Map.of("email", "jane@example.com", "objectKey", "b.png")), notifications);
+    }
+
+    @Test
+    public void concurrency_largeMaxPixels_leavesRoomForOneLargestImage() {
+        long heap = 2L << 30;
+
+        // 1.6 GB for the largest image leaves room for two images of the budget beside it
+        assertEquals(3, ImageBatchProcessorLambdaHandler.concurrency(heap, 200_000_000, 64));
+        // 320 MB for the largest image leaves room for nine
+        assertEquals(10, ImageBatchProcessorLambdaHandler.concurrency(heap, 40_000_000, 64));
+    }
+
+    @Test
+    public void concurrency_smallMaxPixels_isSizedByTheBudget() {
+        long heap = 2L << 30;
+
+        assertEquals(heap / ImageBatchProcessorLambdaHandler.IMAGE_BUDGET_BYTES,
+                ImageBatchProcessorLambdaHandler.concurrency(heap, 1_000_000, 64));
+    }
+
+    @Test
+    public void concurrency_largestImageFillsTheHeap_isOne() {
+        assertEquals(1, ImageBatchProcessorLambdaHandler.concurrency(1L << 30, 500_000_000, 64));
+    }
+
+    @Test
+    public void concurrency_fewProcessors_isCappedAtTwoPerProcessor() {
+        assertEquals(4, ImageBatchProcessorLambdaHandler.concurrency(2L << 30, 40_000_000, 2));
+    }
+
+    private ImageBatchProcessorLambdaHandler handler(int concurrency, RequestHandler<Map<String, Object>, Void> imageProcessor) {
+        return new ImageBatchProcessorLambdaHandler(imageProcessor, (event, reason) -> failure(key(event)),
+                notifier, concurrency, MAX_RECEIVE_COUNT);
+    }
+
+    private static ImageProcessingException failure(String objectKey) {
+        return new ImageProcessingException("{\"reason\":\"Unsupported image\",\"email\":\"jane@example.com\",\"objectKey\":\"" + objectKey + "\"}");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String key(Map<String, Object> event) {
+        Map<String, Object> detail = (Map<String, Object>) event.get("detail");
+        return (String) ((Map<String, Object>) detail.get("object")).get("key");
+    }
+
+    private static SQSEvent event(SQSEvent.SQSMessage... messages) {
+        SQSEvent event = new SQSEvent();
+        event.setRecords(List.of(messages));
+        return event;
+    }
+
+    private static SQSEvent.SQSMessage message(String messageId, String objectKey, int receiveCount) {
+        SQSEvent.SQSMessage message = new SQSEvent.SQSMessage();
+        message.setMessageId(messageId);
+        message.setBody("{\"detail\":{\"bucket\":{\"name\":\"staging-bucket\"},\"object\":{\"key\":\"" + objectKey + "\"}}}");
+        message.setAttributes(Map.of("ApproximateReceiveCount", String.valueOf(receiveCount)));
+        return message;
+    }
+
+    private static List<String> failedIds(SQSBatchResponse response) {
+        return response.getBatchItemFailures().stream()
+                .map(SQSBatchResponse.BatchItemFailure::getItemIdentifier)
+                .toList();
+    }
+
+    private static final class FakeContext implements Context {
+
+        private final long remainingTimeInMillis;
+
+        private FakeContext(long remainingTimeInMillis) {
+            this.remainingTimeInMillis = remainingTimeInMillis;
+        }
+
+        @Override
+        public String getAwsRequestId() {
+            return "request";
+        }
+
+        @Override
+        public String getLogGroupName() {
+            return null;
+        }
+
+        @Override
+        public String getLogStreamName() {
+            return null;
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "BatchProcessImageFunction";
+        }
+
+        @Override
+        public String getFunctionVersion() {
+            return null;
+        }
+
+        @Override
+        public String getInvokedFunctionArn() {
+            return null;
+        }
+
+        @Override
+        public CognitoIdentity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public ClientContext getClientContext() {
+            return null;
+        }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return (int) remainingTimeInMillis;
+        }
+
+        @Override
+        public int getMemoryLimitInMB() {
+            return 2048;
+        }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return new LambdaLogger() {
+                @Override
+                public void log(String message) {
+                }
+
+                @Override
+                public void log(byte[] message) {
+                }
+            };
+        }
+    }
+}
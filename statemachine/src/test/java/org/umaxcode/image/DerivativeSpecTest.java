@@ -0,0 +1,40 @@
+package org.umaxcode.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DerivativeSpecTest {
+
+    @Test
+    public void parse_list_returnsEveryDerivative() {
+        assertEquals(List.of(new DerivativeSpec("thumbnail", 320), new DerivativeSpec("medium", 1280)),
+                DerivativeSpec.parse(" thumbnail:320, medium : 1280 "));
+    }
+
+    @Test
+    public void parse_blank_returnsNoDerivatives() {
+        assertTrue(DerivativeSpec.parse(null).isEmpty());
+        assertTrue(DerivativeSpec.parse(" ").isEmpty());
+    }
+
+    @Test
+    public void parse_reservedName_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> DerivativeSpec.parse(DerivativeRenderer.FULL + ":320"));
+        assertThrows(IllegalArgumentException.class, () -> DerivativeSpec.parse("thumbnail:320, full :1280"));
+    }
+
+    @Test
+    public void parse_nameGivenTwice_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> DerivativeSpec.parse("thumbnail:320,thumbnail:640"));
+    }
+
+    @Test
+    public void parse_malformed_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> DerivativeSpec.parse("thumbnail"));
+        assertThrows(IllegalArgumentException.class, () -> DerivativeSpec.parse(":320"));
+        assertThrows(IllegalArgumentException.class, () -> DerivativeSpec.parse("thumbnail:0"));
+    }
+}
@@ -0,0 +1,158 @@
+package org.umaxcode.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WatermarkMaskTest {
+
+    private static final Font FONT = new Font("Arial", Font.BOLD, 25);
+    private static final Color COLOR = new Color(255, 0, 0, 216);
+    private static final float COMPOSITE = 0.5f;
+    private static final int PADDING = 2;
+    private static final String OWNER_LINE = "Owner: Jane Doe";
+    private static final String DATE_LINE = "Date of Upload: 2025-01-01";
+    // the mask weights are in 256ths, Java2D works in 255ths
+    private static final int TOLERANCE = 2;
+
+    @Test
+    public void applyTo_intRgb_matchesGraphics2D() {
+        assertMatchesGraphics2D(BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Test
+    public void applyTo_intBgr_matchesGraphics2D() {
+        assertMatchesGraphics2D(BufferedImage.TYPE_INT_BGR);
+    }
+
+    @Test
+    public void applyTo_threeByteBgr_matchesGraphics2D() {
+        assertMatchesGraphics2D(BufferedImage.TYPE_3BYTE_BGR);
+    }
+
+    @Test
+    public void applyTo_fourByteAbgr_drawsWithGraphics2D() {
+        assertDrawnWithGraphics2D(BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    @Test
+    public void applyTo_intArgb_drawsWithGraphics2D() {
+        assertDrawnWithGraphics2D(BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    public void applyTo_indexed_drawsWithGraphics2D() {
+        assertDrawnWithGraphics2D(BufferedImage.TYPE_BYTE_INDEXED);
+    }
+
+    @Test
+    public void applyTo_maskPastTheEdges_isClipped() {
+        BufferedImage image = background(BufferedImage.TYPE_INT_RGB, 120, 40);
+        WatermarkMask mask = mask(image);
+
+        mask.applyTo(image, -50, -10);
+        mask.applyTo(image, 100, 30);
+        mask.applyTo(image, 500, 500);
+    }
+
+    // the mask blended into the raster against the text drawn with Graphics2D on an ARGB copy, as the watermark was before
+    private static void assertMatchesGraphics2D(int imageType) {
+        BufferedImage image = background(imageType, 480, 200);
+        WatermarkMask mask = mask(image);
+        int left = 37;
+        int top = 61;
+
+        BufferedImage expected = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D copy = expected.createGraphics();
+        copy.drawImage(image, 0, 0, null);
+        copy.dispose();
+        drawText(expected, left, top);
+
+        mask.applyTo(image, left, top);
+
+        int differing = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int actual = image.getRGB(x, y);
+                int wanted = expected.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int difference = Math.abs(((actual >> shift) & 0xff) - ((wanted >> shift) & 0xff));
+                    assertTrue(difference <= TOLERANCE, "pixel " + x + "," + y + " is "
+                            + Integer.toHexString(actual) + ", Graphics2D drew " + Integer.toHexString(wanted));
+                }
+                if (actual != wanted) {
+                    differing++;
+                }
+            }
+        }
+        assertTrue(changedPixels(imageType, image) > 0, "nothing was drawn");
+        assertTrue(differing < image.getWidth() * image.getHeight() / 10, differing + " pixels differ");
+    }
+
+    private static void assertDrawnWithGraphics2D(int imageType) {
+        BufferedImage image = background(imageType, 480, 200);
+        BufferedImage expected = background(imageType, 480, 200);
+        WatermarkMask mask = mask(image);
+
+        mask.applyTo(image, 37, 61);
+        drawText(expected, 37, 61);
+
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), image.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    private static WatermarkMask mask(BufferedImage image) {
+        Graphics2D g2d = image.createGraphics();
+        FontMetrics fontMetrics = g2d.getFontMetrics(FONT);
+        g2d.dispose();
+        return WatermarkMask.render(OWNER_LINE, DATE_LINE, FONT, fontMetrics, COLOR, COMPOSITE, PADDING);
+    }
+
+    // the lines where WatermarkMask.render places them, relative to the mask's top left corner
+    private static void drawText(BufferedImage image, int left, int top) {
+        Graphics2D g2d = image.createGraphics();
+        g2d.setFont(FONT);
+        g2d.setColor(COLOR);
+        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, COMPOSITE));
+        FontMetrics fontMetrics = g2d.getFontMetrics();
+        int ownerWidth = fontMetrics.stringWidth(OWNER_LINE);
+        int dateWidth = fontMetrics.stringWidth(DATE_LINE);
+        int width = Math.max(ownerWidth, dateWidth) + 2 * PADDING;
+        int ownerBaseline = PADDING + fontMetrics.getAscent();
+        int dateBaseline = ownerBaseline + fontMetrics.getHeight() + fontMetrics.getHeight() / 2;
+        g2d.drawString(OWNER_LINE, left + (width - ownerWidth) / 2, top + ownerBaseline);
+        g2d.drawString(DATE_LINE, left + (width - dateWidth) / 2, top + dateBaseline);
+        g2d.dispose();
+    }
+
+    // a gradient with some transparency, so the blend is checked across many source values
+    private static BufferedImage background(int imageType, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, imageType);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = 255 - (x * 7 + y * 3) % 120;
+                image.setRGB(x, y, alpha << 24 | (x * 255 / width) << 16 | (y * 255 / height) << 8 | (x + y) % 256);
+            }
+        }
+        return image;
+    }
+
+    private static int changedPixels(int imageType, BufferedImage image) {
+        BufferedImage untouched = background(imageType, image.getWidth(), image.getHeight());
+        int changed = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (untouched.getRGB(x, y) != image.getRGB(x, y)) {
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+}